@@ -0,0 +1,49 @@
+package io.github.togar2.pvp.benchmark;
+
+import io.github.togar2.pvp.MinestomPvP;
+import io.github.togar2.pvp.utils.EntityUtil;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.entity.EntityType;
+import net.minestom.server.entity.LivingEntity;
+import net.minestom.server.entity.damage.Damage;
+import net.minestom.server.entity.damage.DamageType;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reflective lookup {@link EntityUtil#setLastDamage(LivingEntity, Damage)} used to do on every call
+ * with the cached accessor it uses now.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LastDamageBenchmark {
+	private LivingEntity entity;
+	private Damage damage;
+	
+	@Setup
+	public void setup() {
+		MinecraftServer.init();
+		MinestomPvP.init();
+		
+		entity = new LivingEntity(EntityType.ZOMBIE);
+		damage = new Damage(DamageType.GENERIC, null, null, null, 1);
+	}
+	
+	@Benchmark
+	public void reflection() throws ReflectiveOperationException {
+		Field field = LivingEntity.class.getDeclaredField("lastDamage");
+		field.setAccessible(true);
+		field.set(entity, damage);
+	}
+	
+	@Benchmark
+	public void varHandle() {
+		EntityUtil.setLastDamage(entity, damage);
+	}
+}
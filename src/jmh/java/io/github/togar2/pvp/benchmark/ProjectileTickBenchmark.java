@@ -0,0 +1,77 @@
+package io.github.togar2.pvp.benchmark;
+
+import io.github.togar2.pvp.MinestomPvP;
+import io.github.togar2.pvp.entity.projectile.Arrow;
+import io.github.togar2.pvp.entity.projectile.ProjectilePhysics;
+import io.github.togar2.pvp.feature.effect.EffectFeature;
+import io.github.togar2.pvp.feature.enchantment.EnchantmentFeature;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.ServerFlag;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.instance.block.Block;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single tick of an arrow in flight, which should not allocate.
+ * Run it with the gc profiler (enabled in the build script) and check {@code gc.alloc.rate.norm}.
+ * <p>
+ * Each iteration spawns a new arrow which flies straight through the air over a flat world for {@link #TICKS} ticks,
+ * so it never hits a block or an entity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 20, batchSize = ProjectileTickBenchmark.TICKS)
+@Measurement(iterations = 50, batchSize = ProjectileTickBenchmark.TICKS)
+@Fork(1)
+public class ProjectileTickBenchmark {
+	static final int TICKS = 200;
+	
+	@Param({"false", "true"})
+	public boolean physics;
+	
+	private InstanceContainer instance;
+	private Arrow arrow;
+	
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		MinecraftServer.init();
+		MinestomPvP.init();
+		
+		instance = MinecraftServer.getInstanceManager().createInstanceContainer();
+		instance.setGenerator(unit -> unit.modifier().fillHeight(0, 1, Block.STONE));
+		// The arrow moves one block per tick along the x axis
+		for (int chunkX = -1; chunkX <= TICKS / 16 + 1; chunkX++) {
+			for (int chunkZ = -1; chunkZ <= 1; chunkZ++) {
+				instance.loadChunk(chunkX, chunkZ).join();
+			}
+		}
+		
+		if (physics) ProjectilePhysics.enable(instance);
+	}
+	
+	@Setup(Level.Iteration)
+	public void setupIteration() {
+		arrow = new Arrow(null, EffectFeature.NO_OP, EnchantmentFeature.NO_OP);
+		arrow.setNoGravity(true);
+		arrow.setInstance(instance, new Pos(0.5, 100, 0.5)).join();
+		arrow.setVelocity(new Vec(ServerFlag.SERVER_TICKS_PER_SECOND, 0, 0));
+		
+		// Let the arrow join the projectile system before measuring
+		arrow.tick(System.currentTimeMillis());
+	}
+	
+	@TearDown(Level.Iteration)
+	public void tearDownIteration() {
+		arrow.remove();
+	}
+	
+	@Benchmark
+	public void tick() {
+		arrow.tick(System.currentTimeMillis());
+	}
+}
@@ -1,5 +1,6 @@
 package io.github.togar2.pvp;
 
+import io.github.togar2.pvp.damage.DamageTypeTable;
 import io.github.togar2.pvp.enchantment.CombatEnchantments;
 import io.github.togar2.pvp.feature.CombatFeatures;
 import io.github.togar2.pvp.feature.config.CombatFeatureRegistry;
@@ -7,6 +8,8 @@ import io.github.togar2.pvp.player.CombatPlayer;
 import io.github.togar2.pvp.player.CombatPlayerImpl;
 import io.github.togar2.pvp.potion.effect.CombatPotionEffects;
 import io.github.togar2.pvp.potion.item.CombatPotionTypes;
+import io.github.togar2.pvp.utils.CombatStateStore;
+import io.github.togar2.pvp.utils.EntityUtil;
 import net.minestom.server.MinecraftServer;
 import net.minestom.server.entity.Player;
 import net.minestom.server.entity.attribute.Attribute;
@@ -64,8 +67,11 @@ public class MinestomPvP {
 		CombatPotionTypes.registerAll();
 		
 		CombatFeatureRegistry.init();
+		EntityUtil.init();
+		DamageTypeTable.rebuild();
 		
 		MinecraftServer.getConnectionManager().setPlayerProvider(CombatPlayerImpl::new);
 		CombatPlayer.init(MinecraftServer.getGlobalEventHandler());
+		CombatStateStore.init(MinecraftServer.getGlobalEventHandler());
 	}
 }
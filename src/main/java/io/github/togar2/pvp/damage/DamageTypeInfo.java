@@ -13,7 +13,7 @@ public record DamageTypeInfo(boolean damagesHelmet, boolean bypassesArmor, boole
                              boolean unblockable, boolean fire, ScaleWithDifficulty scaleWithDifficulty,
                              boolean magic, boolean explosive, boolean fall, boolean thorns, boolean projectile,
                              boolean freeze) {
-	private static final DamageTypeInfo DEFAULT = new DamageTypeInfo();
+	static final DamageTypeInfo DEFAULT = new DamageTypeInfo();
 	
 	public DamageTypeInfo() {
 		this(
@@ -27,6 +27,10 @@ public record DamageTypeInfo(boolean damagesHelmet, boolean bypassesArmor, boole
 		return INFO_MAP.getOrDefault(type, DEFAULT);
 	}
 	
+	public static DamageTypeInfo of(DamageType type) {
+		return DamageTypeTable.get(type).info();
+	}
+	
 	//TODO check source and add missing
 	public static final Map<DynamicRegistry.Key<DamageType>, DamageTypeInfo> INFO_MAP = new HashMap<>() {
 		{
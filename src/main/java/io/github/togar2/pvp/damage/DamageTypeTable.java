@@ -0,0 +1,127 @@
+package io.github.togar2.pvp.damage;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.entity.damage.DamageType;
+import net.minestom.server.registry.DynamicRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A table of all damage types in the damage type registry, indexed by their registry id.
+ * Every entry contains the {@link DamageTypeInfo} and the registry metadata the combat features need on every hit,
+ * so that they do not have to look up the damage type in the registry multiple times.
+ * <p>
+ * The table is built by {@link io.github.togar2.pvp.MinestomPvP#init()}, after the damage type registry has been filled.
+ * Damage types which are not in the table resolve to an entry with the default {@link DamageTypeInfo}.
+ * If the registry has changed size since the table was built, such a lookup rebuilds the table first.
+ */
+public final class DamageTypeTable {
+	private static volatile Snapshot snapshot = null;
+	
+	private DamageTypeTable() {}
+	
+	/**
+	 * A damage type with its resolved registry id and metadata.
+	 *
+	 * @param id the registry id of the damage type, also used in packets, or -1 if it is not registered
+	 * @param key the registry key of the damage type, or null if it is not registered
+	 * @param type the damage type itself, or null if it is not registered
+	 * @param info the combat info of the damage type
+	 * @param effects the effects of the damage type, used to determine the hurt sound
+	 * @param exhaustion the exhaustion caused by the damage type
+	 */
+	public record Entry(int id, @Nullable DynamicRegistry.Key<DamageType> key, @Nullable DamageType type,
+	                    @NotNull DamageTypeInfo info, @Nullable String effects, float exhaustion) {}
+	
+	public static @NotNull Entry get(int id) {
+		Entry entry = find(snapshot(), id);
+		if (entry == null) entry = find(rebuildIfChanged(), id);
+		return entry == null ? new Entry(-1, null, null, DamageTypeInfo.DEFAULT, null, 0) : entry;
+	}
+	
+	public static @NotNull Entry get(@NotNull DynamicRegistry.Key<DamageType> key) {
+		Entry entry = snapshot().byKey.get(key);
+		if (entry == null) entry = rebuildIfChanged().byKey.get(key);
+		return entry == null ? new Entry(-1, key, null, DamageTypeInfo.of(key), null, 0) : entry;
+	}
+	
+	public static @NotNull Entry get(@NotNull DamageType type) {
+		Entry entry = snapshot().byType.get(type);
+		if (entry != null) return entry;
+		
+		// Not the registered instance, fall back to an equality lookup
+		DynamicRegistry.Key<DamageType> key = MinecraftServer.getDamageTypeRegistry().getKey(type);
+		if (key != null) {
+			entry = get(key);
+			if (entry.type() != null) return entry;
+		}
+		
+		var registryEntry = type.registry();
+		return new Entry(
+				-1, key, type, key == null ? DamageTypeInfo.DEFAULT : DamageTypeInfo.of(key),
+				registryEntry == null ? null : registryEntry.effects(),
+				type.exhaustion()
+		);
+	}
+	
+	/**
+	 * Rebuilds the table from the current contents of the damage type registry.
+	 * This only has to be called when damage types have been replaced in the registry after the table has been built.
+	 */
+	public static void rebuild() {
+		build();
+	}
+	
+	private static @Nullable Entry find(Snapshot snapshot, int id) {
+		return id < 0 || id >= snapshot.byId.length ? null : snapshot.byId[id];
+	}
+	
+	private static synchronized Snapshot rebuildIfChanged() {
+		Snapshot snapshot = snapshot();
+		if (snapshot.byId.length == MinecraftServer.getDamageTypeRegistry().values().size()) return snapshot;
+		return build();
+	}
+	
+	private static synchronized Snapshot build() {
+		DynamicRegistry<DamageType> registry = MinecraftServer.getDamageTypeRegistry();
+		List<DamageType> values = registry.values();
+		
+		Entry[] byId = new Entry[values.size()];
+		Map<DynamicRegistry.Key<DamageType>, Entry> byKey = new HashMap<>();
+		Map<DamageType, Entry> byType = new IdentityHashMap<>();
+		
+		for (int id = 0; id < byId.length; id++) {
+			DamageType type = registry.get(id);
+			DynamicRegistry.Key<DamageType> key = registry.getKey(id);
+			if (type == null || key == null) continue;
+			
+			var registryEntry = type.registry();
+			Entry entry = new Entry(
+					id, key, type, DamageTypeInfo.of(key),
+					registryEntry == null ? null : registryEntry.effects(),
+					type.exhaustion()
+			);
+			
+			byId[id] = entry;
+			byKey.put(key, entry);
+			byType.put(type, entry);
+		}
+		
+		Snapshot snapshot = new Snapshot(byId, byKey, byType);
+		DamageTypeTable.snapshot = snapshot;
+		return snapshot;
+	}
+	
+	private static Snapshot snapshot() {
+		Snapshot snapshot = DamageTypeTable.snapshot;
+		return snapshot == null ? build() : snapshot;
+	}
+	
+	private record Snapshot(Entry[] byId, Map<DynamicRegistry.Key<DamageType>, Entry> byKey,
+	                       Map<DamageType, Entry> byType) {}
+}
@@ -40,6 +40,13 @@ public class CombatEnchantment {
 		return dependencies;
 	}
 	
+	public boolean hasSlotType(EquipmentSlot slot) {
+		for (EquipmentSlot slotType : slotTypes) {
+			if (slotType == slot) return true;
+		}
+		return false;
+	}
+	
 	public Map<EquipmentSlot, ItemStack> getEquipment(LivingEntity entity) {
 		Map<EquipmentSlot, ItemStack> map = new HashMap<>();
 		
@@ -0,0 +1,199 @@
+package io.github.togar2.pvp.entity.effect;
+
+import io.github.togar2.pvp.feature.effect.EffectFeature;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minestom.server.color.AlphaColor;
+import net.minestom.server.color.Color;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.EntityType;
+import net.minestom.server.entity.LivingEntity;
+import net.minestom.server.entity.metadata.other.AreaEffectCloudMeta;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.item.component.PotionContents;
+import net.minestom.server.particle.Particle;
+import net.minestom.server.potion.Potion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The cloud left behind by a lingering potion.
+ * Every {@link #APPLY_INTERVAL} ticks it applies its effects to the living entities inside it,
+ * once every {@link #REAPPLICATION_DELAY} ticks per entity. The cloud shrinks over time and every time it applies its effects.
+ * <p>
+ * The clouds in an instance apply their effects together, see {@link AreaEffectClouds}.
+ */
+public class AreaEffectCloud extends Entity {
+	public static final int APPLY_INTERVAL = 5;
+	public static final int REAPPLICATION_DELAY = 20;
+	private static final float MIN_RADIUS = 0.5f;
+	
+	// The cloud can outlive its owner by a long time, so it should not keep the owner in memory
+	private final @Nullable WeakReference<Entity> ownerReference;
+	private final List<Potion> potions;
+	private final EffectFeature effectFeature;
+	
+	private float radius = 3;
+	private float radiusOnUse = -0.5f;
+	private float radiusPerTick;
+	private int waitTime = 10;
+	private int duration = 600;
+	
+	// Entity id to the age of this cloud at which the entity can be affected again
+	private final Int2IntOpenHashMap victims = new Int2IntOpenHashMap();
+	private AreaEffectClouds clouds;
+	
+	public AreaEffectCloud(@Nullable Entity owner, @NotNull PotionContents potionContents, @NotNull EffectFeature effectFeature) {
+		super(EntityType.AREA_EFFECT_CLOUD);
+		this.ownerReference = owner == null ? null : new WeakReference<>(owner);
+		this.potions = effectFeature.getAllPotions(potionContents);
+		this.effectFeature = effectFeature;
+		this.radiusPerTick = -radius / duration;
+		
+		hasPhysics = false;
+		setNoGravity(true);
+		
+		AreaEffectCloudMeta meta = (AreaEffectCloudMeta) getEntityMeta();
+		meta.setParticle(Particle.ENTITY_EFFECT.withColor(
+				new AlphaColor(255, new Color(effectFeature.getPotionColor(potionContents)))));
+		setRadius(radius);
+		meta.setWaiting(true);
+	}
+	
+	/**
+	 * Gets the entity which created this cloud, if it still exists.
+	 *
+	 * @return the owner, or null if it has been removed
+	 */
+	public @Nullable Entity getOwner() {
+		Entity owner = ownerReference == null ? null : ownerReference.get();
+		return owner == null || owner.isRemoved() ? null : owner;
+	}
+	
+	public synchronized float getRadius() {
+		return radius;
+	}
+	
+	public synchronized void setRadius(float radius) {
+		this.radius = radius;
+		((AreaEffectCloudMeta) getEntityMeta()).setRadius(radius);
+		setBoundingBox(radius * 2, 0.5, radius * 2);
+	}
+	
+	/**
+	 * Sets how much the radius changes every time the cloud applies its effects to an entity.
+	 *
+	 * @param radiusOnUse the change of the radius, usually negative
+	 */
+	public void setRadiusOnUse(float radiusOnUse) {
+		this.radiusOnUse = radiusOnUse;
+	}
+	
+	/**
+	 * Sets how much the radius changes every tick, after the wait time.
+	 *
+	 * @param radiusPerTick the change of the radius, usually negative
+	 */
+	public void setRadiusPerTick(float radiusPerTick) {
+		this.radiusPerTick = radiusPerTick;
+	}
+	
+	/**
+	 * Sets the amount of ticks before the cloud starts applying its effects.
+	 *
+	 * @param waitTime the wait time in ticks
+	 */
+	public void setWaitTime(int waitTime) {
+		this.waitTime = waitTime;
+	}
+	
+	/**
+	 * Sets the amount of ticks the cloud lasts after the wait time.
+	 *
+	 * @param duration the duration in ticks
+	 */
+	public void setDuration(int duration) {
+		this.duration = duration;
+	}
+	
+	@Override
+	public void update(long time) {
+		long age = getAliveTicks();
+		if (age >= waitTime + duration) {
+			remove();
+			return;
+		}
+		
+		boolean waiting = age < waitTime;
+		AreaEffectCloudMeta meta = (AreaEffectCloudMeta) getEntityMeta();
+		if (meta.isWaiting() != waiting) meta.setWaiting(waiting);
+		
+		if (!waiting && radiusPerTick != 0) {
+			float radius = getRadius() + radiusPerTick;
+			if (radius < MIN_RADIUS) {
+				remove();
+				return;
+			}
+			setRadius(radius);
+		}
+		
+		if (!waiting && age % APPLY_INTERVAL == 0) {
+			if (clouds == null) clouds = AreaEffectClouds.of(instance);
+			clouds.schedule(this);
+		}
+	}
+	
+	/**
+	 * Forgets the entities which can be affected again.
+	 */
+	void expireVictims() {
+		int age = (int) getAliveTicks();
+		ObjectIterator<Int2IntMap.Entry> iterator = victims.int2IntEntrySet().fastIterator();
+		while (iterator.hasNext()) {
+			if (age >= iterator.next().getIntValue()) iterator.remove();
+		}
+	}
+	
+	/**
+	 * Applies the effects of this cloud to the entity if it is inside the cloud and has not been affected recently.
+	 */
+	void tryAffect(LivingEntity entity) {
+		float radius = getRadius();
+		if (radius < MIN_RADIUS || victims.containsKey(entity.getEntityId())) return;
+		
+		Pos position = this.position;
+		Pos entityPosition = entity.getPosition();
+		double dx = entityPosition.x() - position.x();
+		double dz = entityPosition.z() - position.z();
+		if (dx * dx + dz * dz > radius * radius) return;
+		
+		// The cloud is 0.5 blocks high
+		if (entityPosition.y() + entity.getBoundingBox().maxY() < position.y()
+				|| entityPosition.y() + entity.getBoundingBox().minY() > position.y() + 0.5) return;
+		
+		victims.put(entity.getEntityId(), (int) getAliveTicks() + REAPPLICATION_DELAY);
+		effectFeature.addLingeringPotionEffects(entity, potions, this, getOwner());
+		
+		if (radiusOnUse != 0) {
+			radius += radiusOnUse;
+			if (radius < MIN_RADIUS) {
+				// The clouds are still being applied
+				scheduler().scheduleNextProcess(this::remove);
+				return;
+			}
+			setRadius(radius);
+		}
+	}
+	
+	@Override
+	public @NotNull CompletableFuture<Void> setInstance(@NotNull Instance instance, @NotNull Pos spawnPosition) {
+		clouds = null;
+		return super.setInstance(instance, spawnPosition);
+	}
+}
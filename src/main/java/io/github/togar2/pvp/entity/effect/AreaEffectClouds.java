@@ -0,0 +1,127 @@
+package io.github.togar2.pvp.entity.effect;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.EntityType;
+import net.minestom.server.entity.GameMode;
+import net.minestom.server.entity.LivingEntity;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.EntityTracker;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.tag.Tag;
+import net.minestom.server.utils.chunk.ChunkUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Collects the area effect clouds in an instance which apply their effects this tick,
+ * and applies their effects at the end of the tick for all of them together, once every cloud has been updated.
+ * <p>
+ * The clouds applying their effects in a tick are grouped by the chunks they overlap.
+ * The living entities of every such chunk are fetched from the entity tracker once,
+ * and tested against all clouds overlapping that chunk, so overlapping clouds share one query.
+ * The effects are applied without holding the lock of this class.
+ */
+final class AreaEffectClouds {
+	private static final Tag<AreaEffectClouds> AREA_EFFECT_CLOUDS = Tag.Transient("areaEffectClouds");
+	
+	private final Instance instance;
+	private final List<AreaEffectCloud> pending = new ObjectArrayList<>();
+	private boolean scheduled;
+	
+	// Only used by the pass at the end of the tick
+	private final List<AreaEffectCloud> applying = new ObjectArrayList<>();
+	private final Long2ObjectOpenHashMap<List<AreaEffectCloud>> byChunk = new Long2ObjectOpenHashMap<>();
+	private final List<LivingEntity> entities = new ObjectArrayList<>();
+	
+	private AreaEffectClouds(Instance instance) {
+		this.instance = instance;
+	}
+	
+	static @NotNull AreaEffectClouds of(Instance instance) {
+		synchronized (instance) {
+			AreaEffectClouds clouds = instance.getTag(AREA_EFFECT_CLOUDS);
+			if (clouds == null) {
+				clouds = new AreaEffectClouds(instance);
+				instance.setTag(AREA_EFFECT_CLOUDS, clouds);
+			}
+			return clouds;
+		}
+	}
+	
+	/**
+	 * Makes a cloud apply its effects at the end of this tick.
+	 */
+	synchronized void schedule(AreaEffectCloud cloud) {
+		pending.add(cloud);
+		if (scheduled) return;
+		scheduled = true;
+		MinecraftServer.getSchedulerManager().scheduleEndOfTick(this::apply);
+	}
+	
+	/**
+	 * Applies the effects of all clouds which have been scheduled this tick.
+	 */
+	private void apply() {
+		synchronized (this) {
+			applying.addAll(pending);
+			pending.clear();
+			scheduled = false;
+		}
+		
+		try {
+			if (!instance.isRegistered()) return;
+			
+			for (int i = 0; i < applying.size(); i++) {
+				AreaEffectCloud cloud = applying.get(i);
+				if (cloud.isRemoved() || cloud.getInstance() != instance) continue;
+				cloud.expireVictims();
+				
+				// Entities are affected when their position is within the radius
+				Pos position = cloud.getPosition();
+				float radius = cloud.getRadius();
+				int minChunkX = (int) Math.floor(position.x() - radius) >> 4;
+				int minChunkZ = (int) Math.floor(position.z() - radius) >> 4;
+				int maxChunkX = (int) Math.floor(position.x() + radius) >> 4;
+				int maxChunkZ = (int) Math.floor(position.z() + radius) >> 4;
+				for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+					for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+						byChunk.computeIfAbsent(ChunkUtils.getChunkIndex(chunkX, chunkZ), key -> new ObjectArrayList<>()).add(cloud);
+					}
+				}
+			}
+			
+			for (Long2ObjectMap.Entry<List<AreaEffectCloud>> entry : byChunk.long2ObjectEntrySet()) {
+				long chunkIndex = entry.getLongKey();
+				entities.addAll(instance.getEntityTracker().chunkEntities(
+						ChunkUtils.getChunkCoordX(chunkIndex), ChunkUtils.getChunkCoordZ(chunkIndex),
+						EntityTracker.Target.LIVING_ENTITIES
+				));
+				
+				List<AreaEffectCloud> chunkClouds = entry.getValue();
+				for (int i = 0; i < entities.size(); i++) {
+					LivingEntity entity = entities.get(i);
+					if (!canBeAffected(entity)) continue;
+					
+					for (int j = 0; j < chunkClouds.size(); j++) {
+						chunkClouds.get(j).tryAffect(entity);
+					}
+				}
+				entities.clear();
+			}
+		} finally {
+			applying.clear();
+			entities.clear();
+			byChunk.clear();
+		}
+	}
+	
+	private static boolean canBeAffected(LivingEntity entity) {
+		if (entity.isRemoved() || entity.isDead() || entity.getEntityType() == EntityType.ARMOR_STAND) return false;
+		return !(entity instanceof Player player && player.getGameMode() == GameMode.SPECTATOR);
+	}
+}
@@ -1,5 +1,6 @@
 package io.github.togar2.pvp.entity.explosion;
 
+import io.github.togar2.pvp.feature.explosion.VanillaExplosionSupplier;
 import net.kyori.adventure.nbt.CompoundBinaryTag;
 import net.minestom.server.ServerFlag;
 import net.minestom.server.collision.BoundingBox;
@@ -8,17 +9,40 @@ import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.Entity;
 import net.minestom.server.entity.EntityType;
 import net.minestom.server.entity.metadata.other.PrimedTntMeta;
+import net.minestom.server.instance.EntityTracker;
+import net.minestom.server.instance.ExplosionSupplier;
 import net.minestom.server.instance.Instance;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class TntEntity extends Entity {
 	private final Entity causingEntity;
+	private final boolean merge;
+	private int count = 1;
 	
 	public TntEntity(@Nullable Entity causingEntity) {
+		this(causingEntity, false);
+	}
+	
+	/**
+	 * Creates a new primed TNT entity.
+	 * <p>
+	 * If {@code merge} is true, this entity absorbs other merging TNT entities in the same block with the same fuse
+	 * and the same causing entity.
+	 * A merged entity explodes once, with the amount of merged TNT passed to the explosion supplier
+	 * as the {@code count} of the explosion. {@link io.github.togar2.pvp.feature.explosion.VanillaExplosionSupplier}
+	 * destroys the same blocks as the separate explosions would have, in a single explosion.
+	 *
+	 * @param causingEntity the entity which caused the TNT to be primed
+	 * @param merge whether to merge with other TNT in the same block
+	 */
+	public TntEntity(@Nullable Entity causingEntity, boolean merge) {
 		super(EntityType.TNT);
 		this.causingEntity = causingEntity;
+		this.merge = merge;
 		
 		double angle = ThreadLocalRandom.current().nextDouble() * 6.2831854820251465;
 		setVelocity(new Vec(-Math.sin(angle) * 0.02, 0.2f, -Math.cos(angle) * 0.02)
@@ -33,8 +57,20 @@ public class TntEntity extends Entity {
 		((PrimedTntMeta) getEntityMeta()).setFuseTime(fuse);
 	}
 	
+	/**
+	 * Gets the amount of TNT this entity represents, which is more than 1 if other TNT has been merged into it.
+	 *
+	 * @return the amount of TNT
+	 */
+	public int getCount() {
+		return count;
+	}
+	
 	@Override
 	public void update(long time) {
+		if (isRemoved()) return; // Merged into another TNT entity this tick
+		if (merge) mergeNearby();
+		
 		if (onGround) velocity = velocity.mul(0.7, -0.5, 0.7);
 		int newFuse = getFuse() - 1;
 		setFuse(newFuse);
@@ -44,16 +80,44 @@ public class TntEntity extends Entity {
 			BoundingBox boundingBox = this.boundingBox;
 			
 			remove();
-			if (instance.getExplosionSupplier() != null) instance.explode(
-					(float) position.x(),
-					(float) (position.y() + boundingBox.height() * 0.0625),
-					(float) position.z(),
-					4.0f,
-					causingEntity == null ? null
-							: CompoundBinaryTag.builder()
-							.putString("causingEntity", causingEntity.getUuid().toString())
-							.build()
-			);
+			ExplosionSupplier explosionSupplier = instance.getExplosionSupplier();
+			if (explosionSupplier == null) return;
+			
+			float x = (float) position.x();
+			float y = (float) (position.y() + boundingBox.height() * 0.0625);
+			float z = (float) position.z();
+			
+			if (explosionSupplier instanceof VanillaExplosionSupplier vanillaSupplier) {
+				// Pass the causing entity directly, so it does not have to be looked up by uuid
+				CompoundBinaryTag additionalData = count > 1 ? CompoundBinaryTag.builder().putInt("count", count).build() : null;
+				vanillaSupplier.createExplosion(x, y, z, 4.0f, additionalData, causingEntity).apply(instance);
+				return;
+			}
+			
+			CompoundBinaryTag.Builder data = CompoundBinaryTag.builder();
+			if (causingEntity != null) data.putString("causingEntity", causingEntity.getUuid().toString());
+			if (count > 1) data.putInt("count", count);
+			CompoundBinaryTag additionalData = data.build();
+			
+			instance.explode(x, y, z, 4.0f, additionalData.size() == 0 ? null : additionalData);
+		}
+	}
+	
+	private void mergeNearby() {
+		int fuse = getFuse();
+		List<TntEntity> merged = new ArrayList<>();
+		instance.getEntityTracker().nearbyEntities(position, 1, EntityTracker.Target.ENTITIES, entity -> {
+			if (entity == this || !(entity instanceof TntEntity other) || !other.merge || other.isRemoved()) return;
+			if (other.getFuse() != fuse || !other.position.sameBlock(position)) return;
+			if (other.causingEntity != causingEntity) return;
+			
+			merged.add(other);
+		});
+		
+		// Removed after the query, so the tracker is not modified while it is being iterated
+		for (TntEntity other : merged) {
+			count += other.count;
+			other.remove();
 		}
 	}
 	
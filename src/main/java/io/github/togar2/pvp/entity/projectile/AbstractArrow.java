@@ -3,6 +3,8 @@ package io.github.togar2.pvp.entity.projectile;
 import io.github.togar2.pvp.events.PickupEntityEvent;
 import io.github.togar2.pvp.feature.enchantment.EnchantmentFeature;
 import io.github.togar2.pvp.utils.EntityUtil;
+import it.unimi.dsi.fastutil.ints.IntArraySet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import net.kyori.adventure.sound.Sound;
 import net.minestom.server.ServerFlag;
 import net.minestom.server.coordinate.Pos;
@@ -12,18 +14,17 @@ import net.minestom.server.entity.damage.Damage;
 import net.minestom.server.entity.damage.DamageType;
 import net.minestom.server.entity.metadata.projectile.AbstractArrowMeta;
 import net.minestom.server.event.EventDispatcher;
-import net.minestom.server.instance.EntityTracker;
+import net.minestom.server.instance.Instance;
 import net.minestom.server.item.ItemStack;
 import net.minestom.server.network.packet.server.play.ChangeGameStatePacket;
 import net.minestom.server.network.packet.server.play.CollectItemPacket;
 import net.minestom.server.sound.SoundEvent;
 import net.minestom.server.utils.MathUtils;
+import net.minestom.server.utils.chunk.ChunkUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashSet;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
 public abstract class AbstractArrow extends CustomEntityProjectile {
@@ -37,9 +38,13 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 	private int knockback;
 	private SoundEvent soundEvent = getDefaultSound();
 	
-	private final Set<Integer> piercingIgnore = new HashSet<>();
+	private final IntSet piercingIgnore = new IntArraySet();
 	private int fireTicksLeft = 0;
 	
+	private ArrowPickups pickups;
+	private Instance pickupsInstance;
+	private long pickupsChunk;
+	
 	protected final EnchantmentFeature enchantmentFeature;
 	
 	public AbstractArrow(@Nullable Entity shooter, @NotNull EntityType entityType,
@@ -52,6 +57,11 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 		}
 	}
 	
+	@Override
+	protected boolean isLimited() {
+		return true;
+	}
+	
 	@Override
 	public void update(long time) {
 		if (onGround) {
@@ -75,39 +85,61 @@ public abstract class AbstractArrow extends CustomEntityProjectile {
 			}
 		}
 		
-        // Pickup
-        if (canBePickedUp(null)) {
-            instance.getEntityTracker().nearbyEntities(position, 5, EntityTracker.Target.PLAYERS,
-                    player -> {
-                        if (!player.canPickupItem()) return;
-
-                        // Do not pickup if not visible
-                        if (!isViewer(player))
-                            return;
-
-                        if (isRemoved() || !canBePickedUp(player))
-                            return;
-
-                        if (player.getBoundingBox().expand(1, 0.5f, 1)
-                                .intersectEntity(player.getPosition(), this)) {
-                            PickupEntityEvent event = new PickupEntityEvent(player, this);
-                            EventDispatcher.callCancellable(event, () -> {
-                                if (pickup(player)) {
-                                    player.sendPacketToViewersAndSelf(new CollectItemPacket(
-                                            getEntityId(), player.getEntityId(), 1
-                                    ));
-                                    remove();
-                                }
-                            });
-                        }
-                    });
-        }
-
+		// Pickup is checked from the players, see ArrowPickups
+		updatePickups();
+		
 		//TODO water (also for other projectiles?)
 		
 		tickRemoval();
 	}
 	
+	/**
+	 * Adds this arrow to the pickup index of its instance while it can be picked up, and removes it otherwise.
+	 */
+	private void updatePickups() {
+		long chunkIndex = ChunkUtils.getChunkIndex(position.chunkX(), position.chunkZ());
+		if (pickups != null && (!canBePickedUp(null) || pickupsInstance != instance || pickupsChunk != chunkIndex)) {
+			removeFromPickups();
+		}
+		
+		if (pickups == null && canBePickedUp(null)) {
+			pickups = ArrowPickups.of(instance);
+			pickupsInstance = instance;
+			pickupsChunk = chunkIndex;
+			pickups.add(this, chunkIndex);
+		}
+		
+		if (pickups != null) pickups.sweep();
+	}
+	
+	private void removeFromPickups() {
+		if (pickups == null) return;
+		pickups.remove(this, pickupsChunk);
+		pickups = null;
+		pickupsInstance = null;
+	}
+	
+	/**
+	 * Calls the {@link PickupEntityEvent} and lets the player pick up this arrow if it is not cancelled.
+	 */
+	void tryPickup(Player player) {
+		PickupEntityEvent event = new PickupEntityEvent(player, this);
+		EventDispatcher.callCancellable(event, () -> {
+			if (pickup(player)) {
+				player.sendPacketToViewersAndSelf(new CollectItemPacket(
+						getEntityId(), player.getEntityId(), 1
+				));
+				remove();
+			}
+		});
+	}
+	
+	@Override
+	public void remove() {
+		super.remove();
+		removeFromPickups();
+	}
+	
 	public void setFireTicksLeft(int fireTicksLeft) {
 		this.fireTicksLeft = fireTicksLeft;
 		if (fireTicksLeft > 0) entityMeta.setOnFire(true);
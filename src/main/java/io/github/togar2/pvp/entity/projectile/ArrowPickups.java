@@ -0,0 +1,100 @@
+package io.github.togar2.pvp.entity.projectile;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.tag.Tag;
+import net.minestom.server.utils.chunk.ChunkUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Keeps the arrows in an instance which can be picked up in buckets per chunk,
+ * so that pickups can be checked once per tick from the players instead of from every arrow.
+ * <p>
+ * For every player, only the arrows in the chunks overlapping the pickup box of the player are checked.
+ */
+final class ArrowPickups {
+	private static final Tag<ArrowPickups> ARROW_PICKUPS = Tag.Transient("arrowPickups");
+	
+	private final Instance instance;
+	private final Long2ObjectOpenHashMap<List<AbstractArrow>> byChunk = new Long2ObjectOpenHashMap<>();
+	private long sweptTick = -1;
+	
+	private ArrowPickups(Instance instance) {
+		this.instance = instance;
+	}
+	
+	static @NotNull ArrowPickups of(Instance instance) {
+		synchronized (instance) {
+			ArrowPickups pickups = instance.getTag(ARROW_PICKUPS);
+			if (pickups == null) {
+				pickups = new ArrowPickups(instance);
+				instance.setTag(ARROW_PICKUPS, pickups);
+			}
+			return pickups;
+		}
+	}
+	
+	synchronized void add(AbstractArrow arrow, long chunkIndex) {
+		byChunk.computeIfAbsent(chunkIndex, key -> new ObjectArrayList<>()).add(arrow);
+	}
+	
+	synchronized void remove(AbstractArrow arrow, long chunkIndex) {
+		List<AbstractArrow> arrows = byChunk.get(chunkIndex);
+		if (arrows != null && arrows.remove(arrow) && arrows.isEmpty()) byChunk.remove(chunkIndex);
+	}
+	
+	/**
+	 * Lets every player in the instance pick up the arrows touching their pickup box, once per tick of the instance.
+	 */
+	void sweep() {
+		synchronized (this) {
+			long tick = instance.getWorldAge();
+			if (tick == sweptTick) return;
+			sweptTick = tick;
+			if (byChunk.isEmpty()) return;
+		}
+		
+		List<AbstractArrow> candidates = new ObjectArrayList<>();
+		for (Player player : instance.getPlayers()) {
+			if (!player.canPickupItem()) continue;
+			
+			BoundingBox pickupBox = player.getBoundingBox().expand(1, 0.5f, 1);
+			collectCandidates(player.getPosition(), pickupBox, candidates);
+			
+			for (int i = 0; i < candidates.size(); i++) {
+				AbstractArrow arrow = candidates.get(i);
+				
+				// Do not pickup if not visible
+				if (arrow.isRemoved() || !arrow.isViewer(player) || !arrow.canBePickedUp(player)) continue;
+				if (!pickupBox.intersectEntity(player.getPosition(), arrow)) continue;
+				
+				arrow.tryPickup(player);
+			}
+			candidates.clear();
+		}
+	}
+	
+	/**
+	 * Copies the arrows in the chunks overlapping the box into the candidate list,
+	 * so events can be called outside of the lock.
+	 */
+	private synchronized void collectCandidates(Pos position, BoundingBox box, List<AbstractArrow> candidates) {
+		// Arrows stick out of their chunk by at most half their width
+		int minChunkX = (int) Math.floor(position.x() + box.minX() - 1) >> 4;
+		int minChunkZ = (int) Math.floor(position.z() + box.minZ() - 1) >> 4;
+		int maxChunkX = (int) Math.floor(position.x() + box.maxX() + 1) >> 4;
+		int maxChunkZ = (int) Math.floor(position.z() + box.maxZ() + 1) >> 4;
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+				List<AbstractArrow> arrows = byChunk.get(ChunkUtils.getChunkIndex(chunkX, chunkZ));
+				if (arrows != null) candidates.addAll(arrows);
+			}
+		}
+	}
+}
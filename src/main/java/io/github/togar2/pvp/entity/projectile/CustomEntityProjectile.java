@@ -1,5 +1,6 @@
 package io.github.togar2.pvp.entity.projectile;
 
+import io.github.togar2.pvp.utils.CombatEventHandles;
 import io.github.togar2.pvp.utils.ProjectileUtil;
 import net.minestom.server.ServerFlag;
 import net.minestom.server.collision.*;
@@ -13,20 +14,20 @@ import net.minestom.server.event.entity.projectile.ProjectileCollideWithBlockEve
 import net.minestom.server.event.entity.projectile.ProjectileCollideWithEntityEvent;
 import net.minestom.server.event.entity.projectile.ProjectileUncollideEvent;
 import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
 import net.minestom.server.instance.block.Block;
 import net.minestom.server.utils.chunk.ChunkUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 public class CustomEntityProjectile extends Entity {
 	private static final BoundingBox POINT_BOX = new BoundingBox(0, 0, 0);
 	private static final BoundingBox UNSTUCK_BOX = new BoundingBox(0.12, 0.6, 0.12);
+	private static final double DEVIATION_THRESHOLD = 0.1;
 
 	private final Entity shooter;
 	protected boolean noClip;
@@ -35,6 +36,29 @@ public class CustomEntityProjectile extends Entity {
 	
 	private PhysicsResult previousPhysicsResult = null;
 	
+	private ProjectilePhysics physics;
+	private final double[] physicsStep = new double[6];
+	ProjectilePhysics.Batch physicsBatch;
+	int physicsSlot = -1;
+	
+	private boolean sleeping;
+	private SleepingProjectiles sleepingProjectiles;
+	private Pos sleepPosition;
+	private Vec sleepDirection;
+	
+	private BoundingBox hitBox, hitBoxSource;
+	private final ProjectileBroadphase.Hit hit = new ProjectileBroadphase.Hit();
+	
+	private ProjectileLimits limits;
+	boolean limitsRegistered, limitsEvicted;
+	volatile boolean limitsStuck;
+	int limitsShooterId;
+	CustomEntityProjectile limitsPrevious, limitsNext, shooterPrevious, shooterNext;
+	
+	private ProjectileSyncPolicy syncPolicy;
+	private int ticksSinceSynchronization, ticksSinceVelocitySynchronization;
+	private Vec synchronizedVelocity = Vec.ZERO;
+	
 	/**
 	 * Constructs new projectile.
 	 *
@@ -54,7 +78,10 @@ public class CustomEntityProjectile extends Entity {
 		if (getEntityMeta() instanceof ProjectileMeta) {
 			((ProjectileMeta) getEntityMeta()).setShooter(shooter);
 		}
-		setSynchronizationTicks(getUpdateInterval());
+		
+		// Synchronization is scheduled by the sync policy instead
+		setSynchronizationTicks(Integer.MAX_VALUE);
+		syncPolicy = getDefaultSyncPolicy();
 	}
 	
 	public @Nullable Entity getShooter() {
@@ -127,6 +154,7 @@ public class CustomEntityProjectile extends Entity {
 		
 		final double mul = ServerFlag.SERVER_TICKS_PER_SECOND * power;
 		this.velocity = new Vec(dx * mul, dy * mul, dz * mul);
+		this.synchronizedVelocity = velocity; // Sent with the spawn packet
 		setView(
 				(float) Math.toDegrees(Math.atan2(dx, dz)),
 				(float) Math.toDegrees(Math.atan2(dy, Math.sqrt(dx * dx + dz * dz)))
@@ -153,7 +181,17 @@ public class CustomEntityProjectile extends Entity {
 	
 	@Override
 	public void remove() {
+		wakeUp();
 		super.remove();
+		
+		if (physics != null) {
+			physics.unregister(this);
+			physics = null;
+		}
+		if (limits != null) {
+			limits.unregister(this);
+			limits = null;
+		}
 	}
 	
 	@Override
@@ -161,14 +199,112 @@ public class CustomEntityProjectile extends Entity {
 		super.tick(time);
 		if (isRemoved()) return;
 		
-		if (isStuck() && shouldUnstuck()) {
-			EventDispatcher.call(new ProjectileUncollideEvent(this));
-			collisionDirection = null;
-			setNoGravity(false);
-			onUnstuck();
+		// Sleeping projectiles are woken up when their blocks change, but also check once in a while
+		if (isStuck() && (!sleeping || (getAliveTicks() + getEntityId()) % SleepingProjectiles.CHECK_INTERVAL == 0)) {
+			if (shouldUnstuck()) {
+				wakeUp();
+				EventDispatcher.call(new ProjectileUncollideEvent(this));
+				collisionDirection = null;
+				setNoGravity(false);
+				onUnstuck();
+			} else if (!sleeping) {
+				updatePhysics();
+				fallAsleep();
+			}
+		}
+		
+		// The state of a sleeping projectile does not change
+		if (!sleeping) updatePhysics();
+		if (isLimited()) updateLimits();
+		
+		ticksSinceSynchronization++;
+		ticksSinceVelocitySynchronization++;
+		if (!isStuck() && syncPolicy.shouldSynchronize(this)) {
+			// The velocity only has to be sent again when the client's extrapolation is off
+			boolean deviated = hasDeviated();
+			synchronizePosition();
+			if (deviated) {
+				sendPacketToViewers(getVelocityPacket());
+				synchronizedVelocity = velocity;
+				ticksSinceVelocitySynchronization = 0;
+			}
 		}
 	}
 	
+	/**
+	 * Returns whether this projectile is sleeping.
+	 * A stuck projectile sleeps until one of the blocks it is stuck in changes, see {@link SleepingProjectiles}.
+	 * While sleeping, it does not check whether it should unstuck every tick.
+	 *
+	 * @return whether this projectile is sleeping
+	 */
+	public boolean isSleeping() {
+		return sleeping;
+	}
+	
+	private void fallAsleep() {
+		sleeping = true;
+		sleepPosition = position;
+		sleepDirection = collisionDirection;
+		sleepingProjectiles = SleepingProjectiles.of(instance);
+		sleepingProjectiles.add(this, sleepDirection, sleepPosition);
+	}
+	
+	void wakeUp() {
+		if (!sleeping) return;
+		sleeping = false;
+		sleepingProjectiles.remove(this, sleepDirection, sleepPosition);
+		sleepingProjectiles = null;
+		sleepPosition = null;
+		sleepDirection = null;
+	}
+	
+	/**
+	 * Joins or leaves the projectile system of the instance, and copies the state after this tick into it.
+	 */
+	private void updatePhysics() {
+		ProjectilePhysics physics = ProjectilePhysics.get(instance);
+		if (physics != this.physics) {
+			if (this.physics != null) this.physics.unregister(this);
+			this.physics = physics;
+			if (physics != null) physics.register(this);
+			return;
+		}
+		
+		if (physics != null) physics.update(this);
+	}
+	
+	/**
+	 * Joins or leaves the projectile limits of the instance, and moves to the stuck queue when this projectile got stuck.
+	 */
+	private void updateLimits() {
+		if (limitsEvicted) return;
+		
+		ProjectileLimits limits = ProjectileLimits.get(instance);
+		if (limits != this.limits) {
+			if (this.limits != null) this.limits.unregister(this);
+			this.limits = limits;
+			if (limits != null) limits.register(this);
+			return;
+		}
+		
+		if (limits != null) limits.update(this);
+	}
+	
+	/**
+	 * Returns whether this projectile counts towards the {@link ProjectileLimits} of its instance.
+	 * Projectiles which are limited can be removed when there are too many of them.
+	 *
+	 * @return whether this projectile is limited
+	 */
+	protected boolean isLimited() {
+		return false;
+	}
+	
+	boolean hasBlockPhysics() {
+		return hasPhysics;
+	}
+	
 	public boolean isStuck() {
 		return collisionDirection != null;
 	}
@@ -188,6 +324,13 @@ public class CustomEntityProjectile extends Entity {
 		return !block.registry().collisionShape().intersectBox(intersectPos.sub(collidedPoint).sub(0, 0.6, 0), UNSTUCK_BOX);
 	}
 	
+	/**
+	 * Checks whether this projectile can hit the entity.
+	 * All entities in the instance are considered, by default only {@link LivingEntity}s can be hit.
+	 *
+	 * @param entity the entity
+	 * @return whether the entity can be hit
+	 */
 	protected boolean canHit(Entity entity) {
 		return entity instanceof LivingEntity && !(entity instanceof Player player && player.getGameMode() == GameMode.SPECTATOR);
 	}
@@ -200,6 +343,69 @@ public class CustomEntityProjectile extends Entity {
 		if (isStuck()) return;
 		
 		super.synchronizePosition();
+		ticksSinceSynchronization = 0;
+	}
+	
+	/**
+	 * @return the amount of ticks since the position was last synchronized with the viewers
+	 */
+	public int getTicksSinceSynchronization() {
+		return ticksSinceSynchronization;
+	}
+	
+	/**
+	 * Checks whether the velocity differs from the velocity the viewers extrapolated since it was last sent to them,
+	 * for example because the projectile bounced off something.
+	 *
+	 * @return whether the velocity deviates by more than 10 percent
+	 */
+	public boolean hasDeviated() {
+		int ticks = ticksSinceVelocitySynchronization;
+		Aerodynamics aerodynamics = getAerodynamics();
+		double horizontal = Math.pow(aerodynamics.horizontalAirResistance(), ticks);
+		double x = synchronizedVelocity.x() * horizontal;
+		double z = synchronizedVelocity.z() * horizontal;
+		double y = synchronizedVelocity.y();
+		double gravity = hasNoGravity() ? 0 : aerodynamics.gravity() * ServerFlag.SERVER_TICKS_PER_SECOND;
+		for (int i = 0; i < ticks; i++) {
+			y = y * aerodynamics.verticalAirResistance() - gravity;
+		}
+		
+		// Relative difference, about 6 degrees when only the direction differs
+		double dx = velocity.x() - x, dy = velocity.y() - y, dz = velocity.z() - z;
+		double deviationSquared = dx * dx + dy * dy + dz * dz;
+		double expectedSquared = Math.max(x * x + y * y + z * z, 1);
+		return deviationSquared > expectedSquared * DEVIATION_THRESHOLD * DEVIATION_THRESHOLD;
+	}
+	
+	/**
+	 * @return the velocity the viewers last received for this projectile
+	 */
+	public @NotNull Vec getSynchronizedVelocity() {
+		return synchronizedVelocity;
+	}
+	
+	public @NotNull ProjectileSyncPolicy getSyncPolicy() {
+		return syncPolicy;
+	}
+	
+	/**
+	 * Sets the policy deciding when the position of this projectile is synchronized with its viewers.
+	 *
+	 * @param syncPolicy the policy
+	 */
+	public void setSyncPolicy(@NotNull ProjectileSyncPolicy syncPolicy) {
+		this.syncPolicy = syncPolicy;
+	}
+	
+	/**
+	 * Gets the sync policy this type of projectile starts with.
+	 * Called from the constructor, so fields of subclasses are not initialized yet.
+	 *
+	 * @return the sync policy
+	 */
+	protected @NotNull ProjectileSyncPolicy getDefaultSyncPolicy() {
+		return ProjectileSyncPolicy.adaptive(getUpdateInterval());
 	}
 	
 	private float prevYaw, prevPitch;
@@ -212,32 +418,47 @@ public class CustomEntityProjectile extends Entity {
 		
 		if (!isStuck()) {
 			Vec diff = velocity.div(ServerFlag.SERVER_TICKS_PER_SECOND);
-			PhysicsResult physicsResult = ProjectileUtil.simulateMovement(position, diff, POINT_BOX,
-					instance.getWorldBorder(), instance, hasPhysics, previousPhysicsResult, true);
+			
+			// The projectile system has already moved this projectile if it does not come near any blocks,
+			// in which case there is no physics result
+			PhysicsResult physicsResult = null;
+			Pos newPosition;
+			boolean stepped = physics != null && physics.advance(this, physicsStep);
+			if (stepped) {
+				newPosition = CollisionUtils.applyWorldBorder(instance.getWorldBorder(), position,
+						new Pos(physicsStep[0], physicsStep[1], physicsStep[2], position.yaw(), position.pitch()));
+			} else {
+				physicsResult = ProjectileUtil.simulateMovement(position, diff, POINT_BOX,
+						instance.getWorldBorder(), instance, hasPhysics, previousPhysicsResult, true);
+				newPosition = physicsResult.newPosition();
+			}
 			this.previousPhysicsResult = physicsResult;
 			
-			Pos newPosition = physicsResult.newPosition();
+			Vec prevVelocity = velocity;
 			
 			if (!noClip) {
-				// We won't check collisions with self for first ticks of projectile's life, because it spawns in the
-				// shooter and will immediately be triggered by him.
-				boolean noCollideShooter = getAliveTicks() < 6;
-				Collection<EntityCollisionResult> entityResult = CollisionUtils.checkEntityCollisions(instance, boundingBox.expand(0.1, 0.3, 0.1),
-						position.add(0, -0.3, 0), diff, 3, e -> {
-							if (noCollideShooter && e == shooter) return false;
-							return e != this && canHit(e);
-						}, physicsResult);
-
-				if (!entityResult.isEmpty()) {
-					AtomicBoolean entityCollisionSucceeded = new AtomicBoolean();
+				double hitY = position.y() - 0.3;
+				if (ProjectileBroadphase.nearestHit(instance, this, getHitBox(),
+						position.x(), hitY, position.z(), diff.x(), diff.y(), diff.z(),
+						getMaxHitFraction(diff, physicsResult), hit)) {
+					Entity collided = hit.entity;
+					hit.entity = null;
 					
-					Vec prevVelocity = velocity;
-					EntityCollisionResult collided = entityResult.stream().findFirst().orElse(null);
-					
-					var event = new ProjectileCollideWithEntityEvent(this, Pos.fromPoint(collided.collisionPoint()), collided.entity());
-					EventDispatcher.callCancellable(event, () -> entityCollisionSucceeded.set(onHit(collided.entity())));
+					boolean entityCollisionSucceeded;
+					if (CombatEventHandles.PROJECTILE_COLLIDE_WITH_ENTITY.hasListener()) {
+						Pos collisionPoint = new Pos(
+								position.x() + diff.x() * hit.fraction,
+								hitY + diff.y() * hit.fraction,
+								position.z() + diff.z() * hit.fraction
+						);
+						var event = new ProjectileCollideWithEntityEvent(this, collisionPoint, collided);
+						CombatEventHandles.PROJECTILE_COLLIDE_WITH_ENTITY.call(event);
+						entityCollisionSucceeded = !event.isCancelled() && onHit(collided);
+					} else {
+						entityCollisionSucceeded = onHit(collided);
+					}
 					
-					if (entityCollisionSucceeded.get()) {
+					if (entityCollisionSucceeded) {
 						// Don't remove now because rest of Entity#tick might throw errors
 						scheduler().scheduleNextProcess(this::remove);
 						// Prevent hitting blocks
@@ -249,40 +470,46 @@ public class CustomEntityProjectile extends Entity {
 				}
 			}
 			
-			Chunk finalChunk = ChunkUtils.retrieve(instance, currentChunk, physicsResult.newPosition());
+			Chunk finalChunk = ChunkUtils.retrieve(instance, currentChunk, stepped ? newPosition : physicsResult.newPosition());
 			if (!ChunkUtils.isLoaded(finalChunk)) return;
 			
-			if (physicsResult.hasCollision() && !isStuck()) {
+			if (physicsResult != null && physicsResult.hasCollision() && !isStuck()) {
 				double signumX = physicsResult.collisionX() ? Math.signum(velocity.x()) : 0;
 				double signumY = physicsResult.collisionY() ? Math.signum(velocity.y()) : 0;
 				double signumZ = physicsResult.collisionZ() ? Math.signum(velocity.z()) : 0;
 				Vec collisionDirection = new Vec(signumX, signumY, signumZ);
 				
-				Point collidedPosition = collisionDirection.add(physicsResult.newPosition()).apply(Vec.Operator.FLOOR);
-				Block block = instance.getBlock(collidedPosition);
-				
-				AtomicBoolean shouldRemove = new AtomicBoolean();
-				
-				var event = new ProjectileCollideWithBlockEvent(this, physicsResult.newPosition().withCoord(collidedPosition), block);
-				EventDispatcher.callCancellable(event, () -> {
+				boolean shouldRemove = false;
+				ProjectileCollideWithBlockEvent event = null;
+				if (CombatEventHandles.PROJECTILE_COLLIDE_WITH_BLOCK.hasListener()) {
+					Point collidedPosition = collisionDirection.add(physicsResult.newPosition()).apply(Vec.Operator.FLOOR);
+					Block block = instance.getBlock(collidedPosition);
+					event = new ProjectileCollideWithBlockEvent(this, physicsResult.newPosition().withCoord(collidedPosition), block);
+					CombatEventHandles.PROJECTILE_COLLIDE_WITH_BLOCK.call(event);
+				}
+				if (event == null || !event.isCancelled()) {
 					setNoGravity(true);
 					this.collisionDirection = collisionDirection;
-					shouldRemove.set(onStuck());
-				});
+					shouldRemove = onStuck();
+				}
 				
-				if (shouldRemove.get()) {
+				if (shouldRemove) {
 					// Don't remove now because rest of Entity#tick might throw errors
 					scheduler().scheduleNextProcess(this::remove);
 				}
 			}
 			
-			Aerodynamics aerodynamics = getAerodynamics();
-			velocity = velocity.mul(
-					aerodynamics.horizontalAirResistance(),
-					aerodynamics.verticalAirResistance(),
-					aerodynamics.horizontalAirResistance()
-			).sub(0, hasNoGravity() ? 0 : getAerodynamics().gravity() * ServerFlag.SERVER_TICKS_PER_SECOND, 0);
-			onGround = physicsResult.isOnGround();
+			if (stepped && velocity == prevVelocity) {
+				velocity = new Vec(physicsStep[3], physicsStep[4], physicsStep[5]);
+			} else {
+				Aerodynamics aerodynamics = getAerodynamics();
+				velocity = velocity.mul(
+						aerodynamics.horizontalAirResistance(),
+						aerodynamics.verticalAirResistance(),
+						aerodynamics.horizontalAirResistance()
+				).sub(0, hasNoGravity() ? 0 : getAerodynamics().gravity() * ServerFlag.SERVER_TICKS_PER_SECOND, 0);
+			}
+			onGround = physicsResult != null && physicsResult.isOnGround();
 			
 			float yaw = position.yaw();
 			float pitch = position.pitch();
@@ -305,6 +532,35 @@ public class CustomEntityProjectile extends Entity {
 		}
 	}
 	
+	/**
+	 * Checks whether the broadphase should consider this entity for a hit.
+	 */
+	boolean shouldCollideWith(Entity entity) {
+		// We won't check collisions with self for first ticks of projectile's life, because it spawns in the
+		// shooter and will immediately be triggered by him.
+		if (entity == shooter && getAliveTicks() < 6) return false;
+		return entity != this && canHit(entity);
+	}
+	
+	private BoundingBox getHitBox() {
+		if (hitBoxSource != boundingBox) {
+			hitBoxSource = boundingBox;
+			hitBox = boundingBox.expand(0.1, 0.3, 0.1);
+		}
+		return hitBox;
+	}
+	
+	/**
+	 * Gets the fraction of the movement this tick until the projectile hits a block, entities behind that are not hit.
+	 */
+	private double getMaxHitFraction(Vec diff, @Nullable PhysicsResult physicsResult) {
+		if (physicsResult == null || !physicsResult.hasCollision()) return 1;
+		
+		double length = diff.length();
+		if (length == 0) return 1;
+		return physicsResult.newPosition().distance(position) / length;
+	}
+	
 	private static float lerp(float first, float second) {
 		return first + (second - first) * 0.2f;
 	}
@@ -317,14 +573,33 @@ public class CustomEntityProjectile extends Entity {
 		super.setView(yaw, pitch);
 	}
 	
+	@Override
+	public void setVelocity(@NotNull Vec velocity) {
+		super.setVelocity(velocity);
+		
+		// The viewers extrapolate from the new velocity
+		this.synchronizedVelocity = velocity;
+		this.ticksSinceVelocitySynchronization = 0;
+	}
+	
+	@Override
+	public @NotNull CompletableFuture<Void> setInstance(@NotNull Instance instance, @NotNull Pos spawnPosition) {
+		wakeUp();
+		return super.setInstance(instance, spawnPosition);
+	}
+	
 	@Override
 	public @NotNull CompletableFuture<Void> teleport(@NotNull Pos position) {
+		wakeUp();
 		this.prevYaw = position.yaw();
 		this.prevPitch = position.pitch();
 		
 		return super.teleport(position);
 	}
 	
+	/**
+	 * @return the base amount of ticks between position synchronizations, see {@link #getDefaultSyncPolicy()}
+	 */
 	protected int getUpdateInterval() {
 		return 20;
 	}
@@ -9,6 +9,7 @@ import net.minestom.server.entity.damage.Damage;
 import net.minestom.server.entity.damage.DamageType;
 import net.minestom.server.entity.metadata.other.FishingHookMeta;
 import net.minestom.server.item.Material;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class FishingBobber extends CustomEntityProjectile {
@@ -33,6 +34,12 @@ public class FishingBobber extends CustomEntityProjectile {
 		setAerodynamics(getAerodynamics().withHorizontalAirResistance(0.92).withVerticalAirResistance(0.92));
 	}
 	
+	@Override
+	protected @NotNull ProjectileSyncPolicy getDefaultSyncPolicy() {
+		// The client does not know the custom gravity and bobbing of the bobber, so it cannot extrapolate it
+		return ProjectileSyncPolicy.fixed(getUpdateInterval());
+	}
+	
 	@Override
 	public void tick(long time) {
 		prevPos = getPosition();
@@ -0,0 +1,123 @@
+package io.github.togar2.pvp.entity.projectile;
+
+import io.github.togar2.pvp.utils.EntityUtil;
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.instance.EntityTracker;
+import net.minestom.server.instance.Instance;
+
+/**
+ * Finds the entities hit by moving projectiles using the {@link EntityTracker} of the instance,
+ * which Minestom keeps up to date in chunk buckets whenever an entity moves.
+ * Projectiles test their movement only against the entities in the chunks their movement passes through,
+ * instead of querying all entities in range and sorting them.
+ * <p>
+ * The chunks are only used to find candidates, which projectiles filter with {@link CustomEntityProjectile#canHit(Entity)}.
+ * The hit test itself uses the position and bounding box the entity has at that moment.
+ * The search is widened by the largest default bounding box of all entity types,
+ * so entities with a bounding box which sticks out further than that from their position might not be hit.
+ */
+final class ProjectileBroadphase {
+	private ProjectileBroadphase() {}
+	
+	/**
+	 * Finds the first entity hit by the box of a projectile moving from start along the movement.
+	 *
+	 * @param instance the instance of the projectile
+	 * @param projectile the projectile, which decides which entities it can hit
+	 * @param box the box of the projectile
+	 * @param maxFraction the fraction of the movement after which hits are ignored, for example because a block is hit first
+	 * @param result the hit to write the nearest entity and the fraction of the movement at which it is hit to
+	 * @return whether an entity is hit
+	 */
+	static boolean nearestHit(Instance instance, CustomEntityProjectile projectile, BoundingBox box,
+	                          double startX, double startY, double startZ,
+	                          double movementX, double movementY, double movementZ,
+	                          double maxFraction, Hit result) {
+		double startMinX = startX + box.minX(), startMinY = startY + box.minY(), startMinZ = startZ + box.minZ();
+		double startMaxX = startX + box.maxX(), startMaxY = startY + box.maxY(), startMaxZ = startZ + box.maxZ();
+		
+		// The tracker buckets entities by position, which can be up to an entity size away from their box
+		double extent = EntityUtil.defaultEntityExtent();
+		int minChunkX = (int) Math.floor(Math.min(startMinX, startMinX + movementX) - extent) >> 4;
+		int minChunkZ = (int) Math.floor(Math.min(startMinZ, startMinZ + movementZ) - extent) >> 4;
+		int maxChunkX = (int) Math.floor(Math.max(startMaxX, startMaxX + movementX) + extent) >> 4;
+		int maxChunkZ = (int) Math.floor(Math.max(startMaxZ, startMaxZ + movementZ) + extent) >> 4;
+		
+		EntityTracker tracker = instance.getEntityTracker();
+		Entity nearest = null;
+		double nearestFraction = maxFraction;
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+				for (Entity entity : tracker.chunkEntities(chunkX, chunkZ, EntityTracker.Target.ENTITIES)) {
+					if (entity.isRemoved()) continue;
+					
+					Pos position = entity.getPosition();
+					BoundingBox entityBox = entity.getBoundingBox();
+					double fraction = sweep(
+							startMinX, startMinY, startMinZ, startMaxX, startMaxY, startMaxZ,
+							movementX, movementY, movementZ,
+							position.x() + entityBox.minX(), position.y() + entityBox.minY(), position.z() + entityBox.minZ(),
+							position.x() + entityBox.maxX(), position.y() + entityBox.maxY(), position.z() + entityBox.maxZ()
+					);
+					if (fraction > nearestFraction || (fraction == nearestFraction && nearest != null)) continue;
+					if (!projectile.shouldCollideWith(entity)) continue;
+					
+					nearest = entity;
+					nearestFraction = fraction;
+				}
+			}
+		}
+		
+		if (nearest == null) return false;
+		result.entity = nearest;
+		result.fraction = nearestFraction;
+		return true;
+	}
+	
+	/**
+	 * Slab test of a moving box against a static box, returns the fraction of the movement
+	 * at which the boxes start to touch, 0 if they already touch, or positive infinity if they do not touch within the movement.
+	 */
+	private static double sweep(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+	                            double dx, double dy, double dz,
+	                            double otherMinX, double otherMinY, double otherMinZ,
+	                            double otherMaxX, double otherMaxY, double otherMaxZ) {
+		double enter = 0, exit = 1;
+		
+		if (dx == 0) {
+			if (maxX < otherMinX || minX > otherMaxX) return Double.POSITIVE_INFINITY;
+		} else {
+			double t1 = (otherMinX - maxX) / dx, t2 = (otherMaxX - minX) / dx;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		
+		if (dy == 0) {
+			if (maxY < otherMinY || minY > otherMaxY) return Double.POSITIVE_INFINITY;
+		} else {
+			double t1 = (otherMinY - maxY) / dy, t2 = (otherMaxY - minY) / dy;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		
+		if (dz == 0) {
+			if (maxZ < otherMinZ || minZ > otherMaxZ) return Double.POSITIVE_INFINITY;
+		} else {
+			double t1 = (otherMinZ - maxZ) / dz, t2 = (otherMaxZ - minZ) / dz;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		
+		return enter <= exit ? enter : Double.POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * The result of {@link #nearestHit}, owned by the projectile so it can be reused every tick.
+	 */
+	static final class Hit {
+		Entity entity;
+		double fraction;
+	}
+}
@@ -0,0 +1,308 @@
+package io.github.togar2.pvp.entity.projectile;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.tag.Tag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Limits the amount of projectiles in an instance, and the amount of projectiles per shooter in that instance.
+ * Only projectiles for which {@link CustomEntityProjectile#isLimited()} returns true count towards the limits,
+ * by default these are arrows (not tridents), snowballs and eggs.
+ * <p>
+ * When a limit is exceeded, the projectile which has been stuck the longest is removed.
+ * If no projectile is stuck, the projectile which has been flying the longest is removed instead.
+ * The projectiles are linked into queues by fields on the projectiles themselves, so finding and removing the oldest one is O(1).
+ * <p>
+ * Projectiles join the limits on their next tick, so the limits are checked once a new projectile has ticked.
+ * This system is optional, use {@link #enable(Instance, int, int)} to enable it for an instance.
+ */
+public final class ProjectileLimits {
+	private static final Tag<ProjectileLimits> LIMITS = Tag.Transient("projectileLimits");
+	private static final int NO_SHOOTER = -1;
+	
+	private int maxPerInstance;
+	private int maxPerShooter;
+	
+	private final Queue stuck = new Queue(false), flying = new Queue(false);
+	private final Int2ObjectOpenHashMap<ShooterQueues> byShooter = new Int2ObjectOpenHashMap<>();
+	
+	private long instanceEvictions;
+	private long shooterEvictions;
+	
+	private ProjectileLimits(int maxPerInstance, int maxPerShooter) {
+		this.maxPerInstance = checkLimit(maxPerInstance);
+		this.maxPerShooter = checkLimit(maxPerShooter);
+	}
+	
+	/**
+	 * Enables the projectile limits for an instance, or changes them if they are already enabled.
+	 * Projectiles already in the instance join them on their next tick.
+	 *
+	 * @param instance the instance
+	 * @param maxPerInstance the maximum amount of projectiles in the instance
+	 * @param maxPerShooter the maximum amount of projectiles per shooter in the instance
+	 * @return the projectile limits of the instance
+	 * @throws IllegalArgumentException if a limit is negative
+	 */
+	public static @NotNull ProjectileLimits enable(@NotNull Instance instance, int maxPerInstance, int maxPerShooter) {
+		checkLimit(maxPerInstance);
+		checkLimit(maxPerShooter);
+		synchronized (instance) {
+			ProjectileLimits limits = instance.getTag(LIMITS);
+			if (limits == null) {
+				limits = new ProjectileLimits(maxPerInstance, maxPerShooter);
+				instance.setTag(LIMITS, limits);
+			} else {
+				limits.setMaxPerInstance(maxPerInstance);
+				limits.setMaxPerShooter(maxPerShooter);
+			}
+			return limits;
+		}
+	}
+	
+	/**
+	 * Disables the projectile limits for an instance. Projectiles leave them on their next tick.
+	 *
+	 * @param instance the instance
+	 */
+	public static void disable(@NotNull Instance instance) {
+		instance.removeTag(LIMITS);
+	}
+	
+	public static @Nullable ProjectileLimits get(@NotNull Instance instance) {
+		return instance.getTag(LIMITS);
+	}
+	
+	public synchronized int getMaxPerInstance() {
+		return maxPerInstance;
+	}
+	
+	/**
+	 * Sets the maximum amount of projectiles in the instance.
+	 * If there are more projectiles already, they are removed when the next projectile joins.
+	 *
+	 * @param maxPerInstance the maximum amount of projectiles
+	 * @throws IllegalArgumentException if the limit is negative
+	 */
+	public synchronized void setMaxPerInstance(int maxPerInstance) {
+		this.maxPerInstance = checkLimit(maxPerInstance);
+	}
+	
+	public synchronized int getMaxPerShooter() {
+		return maxPerShooter;
+	}
+	
+	/**
+	 * Sets the maximum amount of projectiles per shooter in the instance.
+	 * If a shooter has more projectiles already, they are removed when the next projectile of that shooter joins.
+	 * Projectiles without a shooter only count towards the instance limit.
+	 *
+	 * @param maxPerShooter the maximum amount of projectiles per shooter
+	 * @throws IllegalArgumentException if the limit is negative
+	 */
+	public synchronized void setMaxPerShooter(int maxPerShooter) {
+		this.maxPerShooter = checkLimit(maxPerShooter);
+	}
+	
+	/**
+	 * Gets the amount of projectiles counting towards the limits.
+	 *
+	 * @return the amount of projectiles
+	 */
+	public synchronized int size() {
+		return stuck.size + flying.size;
+	}
+	
+	/**
+	 * Gets the amount of projectiles of a shooter counting towards the limits.
+	 *
+	 * @param shooter the shooter
+	 * @return the amount of projectiles
+	 */
+	public synchronized int size(@NotNull Entity shooter) {
+		ShooterQueues queues = byShooter.get(shooter.getEntityId());
+		return queues == null ? 0 : queues.size();
+	}
+	
+	/**
+	 * Gets the amount of projectiles removed because the instance limit was exceeded.
+	 *
+	 * @return the amount of projectiles
+	 */
+	public synchronized long getInstanceEvictions() {
+		return instanceEvictions;
+	}
+	
+	/**
+	 * Gets the amount of projectiles removed because the limit of their shooter was exceeded.
+	 *
+	 * @return the amount of projectiles
+	 */
+	public synchronized long getShooterEvictions() {
+		return shooterEvictions;
+	}
+	
+	synchronized void register(CustomEntityProjectile projectile) {
+		if (projectile.limitsRegistered) return;
+		projectile.limitsRegistered = true;
+		projectile.limitsStuck = projectile.isStuck();
+		
+		queue(projectile.limitsStuck).add(projectile);
+		// The shooter might change while the projectile is registered, so remember which queues it was added to
+		Entity shooter = projectile.getShooter();
+		projectile.limitsShooterId = shooter == null ? NO_SHOOTER : shooter.getEntityId();
+		if (shooter != null) {
+			ShooterQueues queues = byShooter.get(projectile.limitsShooterId);
+			if (queues == null) {
+				queues = new ShooterQueues();
+				byShooter.put(projectile.limitsShooterId, queues);
+			}
+			queues.queue(projectile.limitsStuck).add(projectile);
+			
+			while (queues.size() > maxPerShooter) {
+				evict(queues.oldest());
+				shooterEvictions++;
+			}
+		}
+		
+		while (size() > maxPerInstance) {
+			evict(stuck.head != null ? stuck.head : flying.head);
+			instanceEvictions++;
+		}
+	}
+	
+	synchronized void unregister(CustomEntityProjectile projectile) {
+		if (!projectile.limitsRegistered) return;
+		projectile.limitsRegistered = false;
+		
+		queue(projectile.limitsStuck).remove(projectile);
+		int shooterId = projectile.limitsShooterId;
+		projectile.limitsShooterId = NO_SHOOTER;
+		if (shooterId != NO_SHOOTER) {
+			ShooterQueues queues = byShooter.get(shooterId);
+			if (queues != null) {
+				queues.queue(projectile.limitsStuck).remove(projectile);
+				if (queues.size() == 0) byShooter.remove(shooterId);
+			}
+		}
+	}
+	
+	/**
+	 * Moves the projectile to the back of the stuck or flying queue when it became stuck or unstuck.
+	 */
+	void update(CustomEntityProjectile projectile) {
+		// Called every tick, but the stuck state rarely changes, so only lock when it did.
+		// limitsStuck is volatile, so this read does not race with the write in register
+		if (projectile.limitsStuck == projectile.isStuck()) return;
+		
+		synchronized (this) {
+			if (!projectile.limitsRegistered || projectile.limitsStuck == projectile.isStuck()) return;
+			
+			unregister(projectile);
+			register(projectile);
+		}
+	}
+	
+	private static int checkLimit(int limit) {
+		if (limit < 0) throw new IllegalArgumentException("Projectile limit must not be negative: " + limit);
+		return limit;
+	}
+	
+	private void evict(CustomEntityProjectile projectile) {
+		unregister(projectile);
+		projectile.limitsEvicted = true;
+		
+		// The projectile might be ticking on another thread
+		projectile.scheduler().scheduleNextProcess(projectile::remove);
+	}
+	
+	private Queue queue(boolean stuck) {
+		return stuck ? this.stuck : this.flying;
+	}
+	
+	private static final class ShooterQueues {
+		private final Queue stuck = new Queue(true), flying = new Queue(true);
+		
+		private Queue queue(boolean stuck) {
+			return stuck ? this.stuck : this.flying;
+		}
+		
+		private int size() {
+			return stuck.size + flying.size;
+		}
+		
+		private CustomEntityProjectile oldest() {
+			return stuck.head != null ? stuck.head : flying.head;
+		}
+	}
+	
+	/**
+	 * A doubly linked list through either the instance links or the shooter links of the projectiles.
+	 */
+	private static final class Queue {
+		private final boolean shooterLinks;
+		private CustomEntityProjectile head, tail;
+		private int size;
+		
+		private Queue(boolean shooterLinks) {
+			this.shooterLinks = shooterLinks;
+		}
+		
+		private void add(CustomEntityProjectile projectile) {
+			setPrevious(projectile, tail);
+			setNext(projectile, null);
+			if (tail == null) {
+				head = projectile;
+			} else {
+				setNext(tail, projectile);
+			}
+			tail = projectile;
+			size++;
+		}
+		
+		private void remove(CustomEntityProjectile projectile) {
+			CustomEntityProjectile previous = getPrevious(projectile);
+			CustomEntityProjectile next = getNext(projectile);
+			if (previous == null) {
+				head = next;
+			} else {
+				setNext(previous, next);
+			}
+			if (next == null) {
+				tail = previous;
+			} else {
+				setPrevious(next, previous);
+			}
+			setPrevious(projectile, null);
+			setNext(projectile, null);
+			size--;
+		}
+		
+		private CustomEntityProjectile getPrevious(CustomEntityProjectile projectile) {
+			return shooterLinks ? projectile.shooterPrevious : projectile.limitsPrevious;
+		}
+		
+		private CustomEntityProjectile getNext(CustomEntityProjectile projectile) {
+			return shooterLinks ? projectile.shooterNext : projectile.limitsNext;
+		}
+		
+		private void setPrevious(CustomEntityProjectile projectile, CustomEntityProjectile previous) {
+			if (shooterLinks) {
+				projectile.shooterPrevious = previous;
+			} else {
+				projectile.limitsPrevious = previous;
+			}
+		}
+		
+		private void setNext(CustomEntityProjectile projectile, CustomEntityProjectile next) {
+			if (shooterLinks) {
+				projectile.shooterNext = next;
+			} else {
+				projectile.limitsNext = next;
+			}
+		}
+	}
+}
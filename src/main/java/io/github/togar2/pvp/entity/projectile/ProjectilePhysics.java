@@ -0,0 +1,369 @@
+package io.github.togar2.pvp.entity.projectile;
+
+import io.github.togar2.pvp.utils.BlockStateTable;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minestom.server.ServerFlag;
+import net.minestom.server.collision.Shape;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.tag.Tag;
+import net.minestom.server.utils.chunk.ChunkUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Steps the movement of all {@link CustomEntityProjectile}s in an instance in one loop per chunk,
+ * keeping their position, velocity, drag and gravity in primitive arrays.
+ * <p>
+ * The loop only handles projectiles flying through blocks without a collision shape.
+ * Collisions with entities, events and position synchronization are still handled by the projectile itself.
+ * A projectile falls back to its normal movement code when it might hit a block this tick,
+ * or when its state has been changed since its last tick (for example by a teleport or {@link Entity#setVelocity(Vec)}),
+ * so the trajectories are exactly the same as without this system.
+ * <p>
+ * Projectiles are grouped by the chunk they are in, and every group is stepped by the first of its projectiles
+ * to move in a tick. Since entities are ticked by the thread of their chunk, the lock of a group is
+ * only shared by projectiles ticking on the same thread. The instance-wide lock is only taken
+ * when a projectile joins, leaves or moves to another chunk.
+ * <p>
+ * This system is optional, use {@link #enable(Instance)} to enable it for an instance.
+ */
+public final class ProjectilePhysics {
+	private static final Tag<ProjectilePhysics> PHYSICS = Tag.Transient("projectilePhysics");
+	private static final boolean[] COLLIDES_BY_STATE = BlockStateTable.ofBoolean(state -> {
+		Shape shape = state.registry().collisionShape();
+		Point start = shape.relativeStart();
+		Point end = shape.relativeEnd();
+		return start.x() < end.x() && start.y() < end.y() && start.z() < end.z();
+	});
+	
+	private static final byte BLOCK_PHYSICS = 1;
+	private static final byte STUCK = 1 << 1;
+	private static final byte NO_GRAVITY = 1 << 2;
+	private static final byte FREE = 1 << 3;
+	
+	private final Instance instance;
+	private final Long2ObjectOpenHashMap<Batch> batches = new Long2ObjectOpenHashMap<>();
+	
+	private ProjectilePhysics(Instance instance) {
+		this.instance = instance;
+	}
+	
+	/**
+	 * Enables the projectile system for an instance. Projectiles already in the instance join it on their next tick.
+	 *
+	 * @param instance the instance
+	 * @return the projectile system of the instance
+	 */
+	public static @NotNull ProjectilePhysics enable(@NotNull Instance instance) {
+		synchronized (instance) {
+			ProjectilePhysics physics = instance.getTag(PHYSICS);
+			if (physics == null) {
+				physics = new ProjectilePhysics(instance);
+				instance.setTag(PHYSICS, physics);
+			}
+			return physics;
+		}
+	}
+	
+	/**
+	 * Disables the projectile system for an instance. Projectiles leave it on their next tick.
+	 *
+	 * @param instance the instance
+	 */
+	public static void disable(@NotNull Instance instance) {
+		instance.removeTag(PHYSICS);
+	}
+	
+	public static @Nullable ProjectilePhysics get(@NotNull Instance instance) {
+		return instance.getTag(PHYSICS);
+	}
+	
+	/**
+	 * Gets the amount of projectiles in this system.
+	 *
+	 * @return the amount of projectiles
+	 */
+	public synchronized int size() {
+		int size = 0;
+		for (Batch batch : batches.values()) {
+			size += batch.size();
+		}
+		return size;
+	}
+	
+	synchronized void register(CustomEntityProjectile projectile) {
+		if (projectile.physicsBatch != null) return;
+		
+		Pos position = projectile.getPosition();
+		long chunkIndex = ChunkUtils.getChunkIndex(position.chunkX(), position.chunkZ());
+		Batch batch = batches.get(chunkIndex);
+		if (batch == null) {
+			batch = new Batch(instance, chunkIndex);
+			batches.put(chunkIndex, batch);
+		}
+		batch.add(projectile);
+	}
+	
+	synchronized void unregister(CustomEntityProjectile projectile) {
+		Batch batch = projectile.physicsBatch;
+		if (batch == null) return;
+		
+		batch.remove(projectile);
+		if (batch.size() == 0) batches.remove(batch.chunkIndex, batch);
+	}
+	
+	/**
+	 * Copies the current state of the projectile into the arrays, which will be used for the next step.
+	 * Moves the projectile to the group of its new chunk if it has left the chunk of its group.
+	 */
+	void update(CustomEntityProjectile projectile) {
+		Batch batch = projectile.physicsBatch;
+		if (batch == null) return;
+		
+		Pos position = projectile.getPosition();
+		if (batch.chunkIndex != ChunkUtils.getChunkIndex(position.chunkX(), position.chunkZ())) {
+			synchronized (this) {
+				unregister(projectile);
+				register(projectile);
+			}
+			return;
+		}
+		
+		batch.update(projectile);
+	}
+	
+	/**
+	 * Gets the movement of the projectile in the current tick, stepping the projectiles of its chunk first if that has not happened yet this tick.
+	 *
+	 * @param projectile the projectile
+	 * @param result the array to write the new position and velocity to
+	 * @return true if the result has been written, false if the projectile has to use its normal movement code
+	 */
+	boolean advance(CustomEntityProjectile projectile, double[] result) {
+		Batch batch = projectile.physicsBatch;
+		return batch != null && batch.advance(projectile, result);
+	}
+	
+	/**
+	 * The projectiles of a single chunk, stepped together.
+	 */
+	static final class Batch {
+		private final Instance instance;
+		private final long chunkIndex;
+		private long steppedTick = -1;
+		private int size;
+		
+		private CustomEntityProjectile[] projectiles = new CustomEntityProjectile[16];
+		private byte[] flags = new byte[16];
+		private double[] x = new double[16], y = new double[16], z = new double[16];
+		private double[] velocityX = new double[16], velocityY = new double[16], velocityZ = new double[16];
+		private double[] horizontalDrag = new double[16], verticalDrag = new double[16], gravity = new double[16];
+		private double[] nextX = new double[16], nextY = new double[16], nextZ = new double[16];
+		private double[] nextVelocityX = new double[16], nextVelocityY = new double[16], nextVelocityZ = new double[16];
+		
+		private Chunk chunk;
+		
+		private Batch(Instance instance, long chunkIndex) {
+			this.instance = instance;
+			this.chunkIndex = chunkIndex;
+		}
+		
+		private synchronized int size() {
+			return size;
+		}
+		
+		private synchronized void add(CustomEntityProjectile projectile) {
+			if (size == projectiles.length) grow();
+			projectiles[size] = projectile;
+			projectile.physicsBatch = this;
+			projectile.physicsSlot = size;
+			size++;
+			
+			update(projectile);
+		}
+		
+		private synchronized void remove(CustomEntityProjectile projectile) {
+			int slot = projectile.physicsSlot;
+			if (slot < 0 || projectiles[slot] != projectile) return;
+			projectile.physicsBatch = null;
+			projectile.physicsSlot = -1;
+			
+			// Move the last projectile into the free slot
+			int last = --size;
+			if (slot != last) {
+				CustomEntityProjectile moved = projectiles[last];
+				projectiles[slot] = moved;
+				moved.physicsSlot = slot;
+				flags[slot] = flags[last];
+				x[slot] = x[last];
+				y[slot] = y[last];
+				z[slot] = z[last];
+				velocityX[slot] = velocityX[last];
+				velocityY[slot] = velocityY[last];
+				velocityZ[slot] = velocityZ[last];
+				horizontalDrag[slot] = horizontalDrag[last];
+				verticalDrag[slot] = verticalDrag[last];
+				gravity[slot] = gravity[last];
+				nextX[slot] = nextX[last];
+				nextY[slot] = nextY[last];
+				nextZ[slot] = nextZ[last];
+				nextVelocityX[slot] = nextVelocityX[last];
+				nextVelocityY[slot] = nextVelocityY[last];
+				nextVelocityZ[slot] = nextVelocityZ[last];
+			}
+			projectiles[last] = null;
+		}
+		
+		private synchronized void update(CustomEntityProjectile projectile) {
+			int slot = projectile.physicsSlot;
+			if (slot < 0) return;
+			
+			Pos position = projectile.getPosition();
+			Vec velocity = projectile.getVelocity();
+			Entity.Aerodynamics aerodynamics = projectile.getAerodynamics();
+			boolean noGravity = projectile.hasNoGravity();
+			
+			byte flags = 0;
+			if (projectile.hasBlockPhysics()) flags |= BLOCK_PHYSICS;
+			if (projectile.isStuck()) flags |= STUCK;
+			if (noGravity) flags |= NO_GRAVITY;
+			this.flags[slot] = flags;
+			
+			x[slot] = position.x();
+			y[slot] = position.y();
+			z[slot] = position.z();
+			velocityX[slot] = velocity.x();
+			velocityY[slot] = velocity.y();
+			velocityZ[slot] = velocity.z();
+			horizontalDrag[slot] = aerodynamics.horizontalAirResistance();
+			verticalDrag[slot] = aerodynamics.verticalAirResistance();
+			gravity[slot] = noGravity ? 0 : aerodynamics.gravity() * ServerFlag.SERVER_TICKS_PER_SECOND;
+		}
+		
+		private synchronized boolean advance(CustomEntityProjectile projectile, double[] result) {
+			int slot = projectile.physicsSlot;
+			if (slot < 0) return false;
+			
+			long tick = instance.getWorldAge();
+			if (tick != steppedTick) {
+				steppedTick = tick;
+				step();
+			}
+			
+			if ((flags[slot] & FREE) == 0) return false;
+			
+			// Make sure the step used the state the projectile has now
+			Pos position = projectile.getPosition();
+			Vec velocity = projectile.getVelocity();
+			Entity.Aerodynamics aerodynamics = projectile.getAerodynamics();
+			if (position.x() != x[slot] || position.y() != y[slot] || position.z() != z[slot]
+					|| velocity.x() != velocityX[slot] || velocity.y() != velocityY[slot] || velocity.z() != velocityZ[slot]
+					|| aerodynamics.horizontalAirResistance() != horizontalDrag[slot]
+					|| aerodynamics.verticalAirResistance() != verticalDrag[slot]
+					|| projectile.hasNoGravity() != ((flags[slot] & NO_GRAVITY) != 0)
+					|| (!projectile.hasNoGravity() && aerodynamics.gravity() * ServerFlag.SERVER_TICKS_PER_SECOND != gravity[slot])
+					|| projectile.hasBlockPhysics() != ((flags[slot] & BLOCK_PHYSICS) != 0))
+				return false;
+			
+			result[0] = nextX[slot];
+			result[1] = nextY[slot];
+			result[2] = nextZ[slot];
+			result[3] = nextVelocityX[slot];
+			result[4] = nextVelocityY[slot];
+			result[5] = nextVelocityZ[slot];
+			return true;
+		}
+		
+		private void step() {
+			double ticksPerSecond = ServerFlag.SERVER_TICKS_PER_SECOND;
+			for (int i = 0; i < size; i++) {
+				byte flags = (byte) (this.flags[i] & ~FREE);
+				if ((flags & STUCK) != 0) {
+					this.flags[i] = flags;
+					continue;
+				}
+				
+				double x = this.x[i], y = this.y[i], z = this.z[i];
+				double newX = x + velocityX[i] / ticksPerSecond;
+				double newY = y + velocityY[i] / ticksPerSecond;
+				double newZ = z + velocityZ[i] / ticksPerSecond;
+				
+				if ((flags & BLOCK_PHYSICS) != 0 && mightCollide(x, y, z, newX, newY, newZ)) {
+					this.flags[i] = flags;
+					continue;
+				}
+				
+				nextX[i] = newX;
+				nextY[i] = newY;
+				nextZ[i] = newZ;
+				nextVelocityX[i] = velocityX[i] * horizontalDrag[i];
+				nextVelocityY[i] = velocityY[i] * verticalDrag[i] - gravity[i];
+				nextVelocityZ[i] = velocityZ[i] * horizontalDrag[i];
+				this.flags[i] = (byte) (flags | FREE);
+			}
+			
+			chunk = null;
+		}
+		
+		/**
+		 * Checks whether any block around the movement has a collision shape.
+		 * This is conservative: it also returns true if a chunk is not loaded or the movement leaves the world height.
+		 */
+		private boolean mightCollide(double x, double y, double z, double newX, double newY, double newZ) {
+			int minX = (int) Math.floor(Math.min(x, newX) - Vec.EPSILON);
+			int minY = (int) Math.floor(Math.min(y, newY) - Vec.EPSILON) - 1; // Fences and walls stick out into the block above
+			int minZ = (int) Math.floor(Math.min(z, newZ) - Vec.EPSILON);
+			int maxX = (int) Math.floor(Math.max(x, newX) + Vec.EPSILON);
+			int maxY = (int) Math.floor(Math.max(y, newY) + Vec.EPSILON);
+			int maxZ = (int) Math.floor(Math.max(z, newZ) + Vec.EPSILON);
+			
+			for (int blockX = minX; blockX <= maxX; blockX++) {
+				for (int blockZ = minZ; blockZ <= maxZ; blockZ++) {
+					Chunk chunk = this.chunk;
+					if (chunk == null || chunk.getChunkX() != blockX >> 4 || chunk.getChunkZ() != blockZ >> 4) {
+						chunk = instance.getChunk(blockX >> 4, blockZ >> 4);
+						if (chunk == null || !chunk.isLoaded()) return true;
+						this.chunk = chunk;
+					}
+					if (minY < chunk.getMinSection() * 16 || maxY >= chunk.getMaxSection() * 16) return true;
+					
+					for (int blockY = minY; blockY <= maxY; blockY++) {
+						int stateId = chunk.getBlock(blockX, blockY, blockZ, Block.Getter.Condition.TYPE).stateId();
+						if (stateId < 0 || stateId >= COLLIDES_BY_STATE.length || COLLIDES_BY_STATE[stateId]) return true;
+					}
+				}
+			}
+			
+			return false;
+		}
+		
+		private void grow() {
+			int length = projectiles.length * 2;
+			projectiles = Arrays.copyOf(projectiles, length);
+			flags = Arrays.copyOf(flags, length);
+			x = Arrays.copyOf(x, length);
+			y = Arrays.copyOf(y, length);
+			z = Arrays.copyOf(z, length);
+			velocityX = Arrays.copyOf(velocityX, length);
+			velocityY = Arrays.copyOf(velocityY, length);
+			velocityZ = Arrays.copyOf(velocityZ, length);
+			horizontalDrag = Arrays.copyOf(horizontalDrag, length);
+			verticalDrag = Arrays.copyOf(verticalDrag, length);
+			gravity = Arrays.copyOf(gravity, length);
+			nextX = Arrays.copyOf(nextX, length);
+			nextY = Arrays.copyOf(nextY, length);
+			nextZ = Arrays.copyOf(nextZ, length);
+			nextVelocityX = Arrays.copyOf(nextVelocityX, length);
+			nextVelocityY = Arrays.copyOf(nextVelocityY, length);
+			nextVelocityZ = Arrays.copyOf(nextVelocityZ, length);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package io.github.togar2.pvp.entity.projectile;
+
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides when the position of a projectile is synchronized with its viewers.
+ * Between synchronizations, the client moves the projectile itself using its velocity, gravity and drag.
+ * <p>
+ * Stuck projectiles are never synchronized, regardless of the policy.
+ */
+@FunctionalInterface
+public interface ProjectileSyncPolicy {
+	/**
+	 * Never synchronizes the position, the client only knows the velocity the projectile was spawned with.
+	 */
+	ProjectileSyncPolicy NEVER = projectile -> false;
+	
+	/**
+	 * Decides whether the position of the projectile should be synchronized this tick.
+	 * Called every tick the projectile is not stuck.
+	 *
+	 * @param projectile the projectile
+	 * @return whether to synchronize the position
+	 */
+	boolean shouldSynchronize(@NotNull CustomEntityProjectile projectile);
+	
+	/**
+	 * Synchronizes the position every given amount of ticks, to all viewers.
+	 *
+	 * @param interval the amount of ticks between synchronizations
+	 * @return the policy
+	 */
+	static @NotNull ProjectileSyncPolicy fixed(int interval) {
+		return projectile -> projectile.getTicksSinceSynchronization() >= interval;
+	}
+	
+	/**
+	 * Synchronizes the position based on the distance to the nearest viewer.
+	 * <p>
+	 * Projectiles within 48 blocks of a viewer synchronize every base interval,
+	 * projectiles further than that from every viewer synchronize 5 times less often.
+	 * Within 16 blocks of a viewer, a projectile which moves differently from how the client extrapolates it
+	 * (see {@link CustomEntityProjectile#hasDeviated()}) is synchronized early, at most every quarter of the base interval.
+	 * Straight flights are left to the client, so they are never synchronized more often than the base interval.
+	 *
+	 * @param interval the base amount of ticks between synchronizations
+	 * @return the policy
+	 */
+	static @NotNull ProjectileSyncPolicy adaptive(int interval) {
+		return new Adaptive(Math.max(1, interval / 4), interval, interval * 5, 16, 48);
+	}
+	
+	/**
+	 * The policy returned by {@link #adaptive(int)}.
+	 *
+	 * @param minInterval the least amount of ticks between synchronizations of a projectile which deviated
+	 * @param interval the interval when a viewer is within the far distance
+	 * @param farInterval the interval when no viewer is within the far distance
+	 * @param nearDistance the distance within which deviations are synchronized early
+	 * @param farDistance the far distance
+	 */
+	record Adaptive(int minInterval, int interval, int farInterval,
+	                double nearDistance, double farDistance) implements ProjectileSyncPolicy {
+		@Override
+		public boolean shouldSynchronize(@NotNull CustomEntityProjectile projectile) {
+			int ticks = projectile.getTicksSinceSynchronization();
+			if (ticks < minInterval || projectile.getViewers().isEmpty()) return false;
+			if (ticks >= farInterval) return true;
+			
+			double nearestSquared = nearestViewerDistanceSquared(projectile);
+			if (nearestSquared > farDistance * farDistance) return false;
+			if (ticks >= interval) return true;
+			return nearestSquared <= nearDistance * nearDistance && projectile.hasDeviated();
+		}
+		
+		private static double nearestViewerDistanceSquared(CustomEntityProjectile projectile) {
+			Pos position = projectile.getPosition();
+			double nearest = Double.MAX_VALUE;
+			for (Player viewer : projectile.getViewers()) {
+				nearest = Math.min(nearest, viewer.getPosition().distanceSquared(position));
+			}
+			return nearest;
+		}
+	}
+}
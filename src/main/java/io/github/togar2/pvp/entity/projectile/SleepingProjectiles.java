@@ -0,0 +1,117 @@
+package io.github.togar2.pvp.entity.projectile;
+
+import io.github.togar2.pvp.feature.explosion.VanillaExplosionSupplier;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.event.player.PlayerBlockBreakEvent;
+import net.minestom.server.event.player.PlayerBlockPlaceEvent;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.tag.Tag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Keeps track of the stuck projectiles in an instance which are sleeping.
+ * A sleeping projectile does not check every tick whether it should unstuck.
+ * <p>
+ * It is woken up when one of the blocks it is stuck in is broken or placed by a player,
+ * when an explosion changes one of these blocks, or when {@link #wake(Instance, Point)} is called for one of these blocks.
+ * Block changes made in other ways are noticed by a check once every {@link #CHECK_INTERVAL} ticks.
+ */
+public final class SleepingProjectiles {
+	private static final Tag<SleepingProjectiles> SLEEPING_PROJECTILES = Tag.Transient("sleepingProjectiles");
+	
+	public static final int CHECK_INTERVAL = 20;
+	
+	private final Long2ObjectOpenHashMap<List<CustomEntityProjectile>> byBlock = new Long2ObjectOpenHashMap<>();
+	
+	private SleepingProjectiles(Instance instance) {
+		instance.eventNode().addListener(PlayerBlockBreakEvent.class, event -> wake(event.getBlockPosition()));
+		instance.eventNode().addListener(PlayerBlockPlaceEvent.class, event -> wake(event.getBlockPosition()));
+	}
+	
+	static @NotNull SleepingProjectiles of(Instance instance) {
+		synchronized (instance) {
+			SleepingProjectiles sleeping = instance.getTag(SLEEPING_PROJECTILES);
+			if (sleeping == null) {
+				sleeping = new SleepingProjectiles(instance);
+				instance.setTag(SLEEPING_PROJECTILES, sleeping);
+			}
+			return sleeping;
+		}
+	}
+	
+	/**
+	 * Wakes up the projectiles stuck in the block at the given position.
+	 * Should be called after changing a block in a way that does not call an event, for example {@link Instance#setBlock(Point, net.minestom.server.instance.block.Block)}.
+	 *
+	 * @param instance the instance of the block
+	 * @param blockPosition the position of the block
+	 */
+	public static void wake(@NotNull Instance instance, @NotNull Point blockPosition) {
+		SleepingProjectiles sleeping = get(instance);
+		if (sleeping != null) sleeping.wake(blockPosition);
+	}
+	
+	/**
+	 * Gets the sleeping projectiles of an instance.
+	 *
+	 * @param instance the instance
+	 * @return the sleeping projectiles, or null if no projectile has slept in the instance yet
+	 */
+	public static @Nullable SleepingProjectiles get(@NotNull Instance instance) {
+		return instance.getTag(SLEEPING_PROJECTILES);
+	}
+	
+	private void wake(Point blockPosition) {
+		wake(blockPosition.blockX(), blockPosition.blockY(), blockPosition.blockZ());
+	}
+	
+	/**
+	 * Wakes up the projectiles stuck in the block at the given position.
+	 *
+	 * @param x the x coordinate of the block
+	 * @param y the y coordinate of the block
+	 * @param z the z coordinate of the block
+	 */
+	public synchronized void wake(int x, int y, int z) {
+		List<CustomEntityProjectile> projectiles = byBlock.get(VanillaExplosionSupplier.pack(x, y, z));
+		if (projectiles == null) return;
+		
+		// Waking removes the projectile from the list
+		for (CustomEntityProjectile projectile : projectiles.toArray(new CustomEntityProjectile[0])) {
+			projectile.wakeUp();
+		}
+	}
+	
+	synchronized void add(CustomEntityProjectile projectile, Vec collisionDirection, Pos position) {
+		int blockX = position.blockX(), blockY = position.blockY(), blockZ = position.blockZ();
+		
+		// These are the blocks checked to unstuck the projectile
+		if (collisionDirection.x() != 0) watch(blockX + (int) collisionDirection.x(), blockY, blockZ, projectile);
+		if (collisionDirection.y() != 0) watch(blockX, blockY + (int) collisionDirection.y(), blockZ, projectile);
+		if (collisionDirection.z() != 0) watch(blockX, blockY, blockZ + (int) collisionDirection.z(), projectile);
+	}
+	
+	private void watch(int x, int y, int z, CustomEntityProjectile projectile) {
+		byBlock.computeIfAbsent(VanillaExplosionSupplier.pack(x, y, z), key -> new ObjectArrayList<>()).add(projectile);
+	}
+	
+	synchronized void remove(CustomEntityProjectile projectile, Vec collisionDirection, Pos position) {
+		int blockX = position.blockX(), blockY = position.blockY(), blockZ = position.blockZ();
+		if (collisionDirection.x() != 0) unwatch(blockX + (int) collisionDirection.x(), blockY, blockZ, projectile);
+		if (collisionDirection.y() != 0) unwatch(blockX, blockY + (int) collisionDirection.y(), blockZ, projectile);
+		if (collisionDirection.z() != 0) unwatch(blockX, blockY, blockZ + (int) collisionDirection.z(), projectile);
+	}
+	
+	private void unwatch(int x, int y, int z, CustomEntityProjectile projectile) {
+		long key = VanillaExplosionSupplier.pack(x, y, z);
+		List<CustomEntityProjectile> projectiles = byBlock.get(key);
+		if (projectiles != null && projectiles.remove(projectile) && projectiles.isEmpty()) byBlock.remove(key);
+	}
+}
@@ -33,6 +33,11 @@ public class Snowball extends CustomEntityProjectile implements ItemHoldingProje
 		return true;
 	}
 	
+	@Override
+	protected boolean isLimited() {
+		return true;
+	}
+	
 	@Override
 	public void setItem(@NotNull ItemStack item) {
 		((SnowballMeta) getEntityMeta()).setItem(item);
@@ -32,6 +32,11 @@ public class ThrownEgg extends CustomEntityProjectile implements ItemHoldingProj
 		return true;
 	}
 	
+	@Override
+	protected boolean isLimited() {
+		return true;
+	}
+	
 	@Override
 	public void setItem(@NotNull ItemStack item) {
 		((ThrownEggMeta) getEntityMeta()).setItem(item);
@@ -1,12 +1,15 @@
 package io.github.togar2.pvp.entity.projectile;
 
+import io.github.togar2.pvp.entity.effect.AreaEffectCloud;
 import io.github.togar2.pvp.feature.effect.EffectFeature;
 import io.github.togar2.pvp.utils.EffectUtil;
+import io.github.togar2.pvp.utils.EntityUtil;
 import net.minestom.server.collision.BoundingBox;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.effects.Effects;
 import net.minestom.server.entity.*;
 import net.minestom.server.entity.metadata.item.ThrownPotionMeta;
+import net.minestom.server.instance.EntityTracker;
 import net.minestom.server.item.ItemComponent;
 import net.minestom.server.item.ItemStack;
 import net.minestom.server.item.Material;
@@ -15,11 +18,14 @@ import net.minestom.server.potion.Potion;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 public class ThrownPotion extends CustomEntityProjectile implements ItemHoldingProjectile {
+	// Reused for every splash on the same thread, since splashes are handled one at a time
+	private static final ThreadLocal<List<LivingEntity>> SPLASH_TARGETS = ThreadLocal.withInitial(ArrayList::new);
+	
 	private final EffectFeature effectFeature;
 	
 	public ThrownPotion(@Nullable Entity shooter, EffectFeature effectFeature) {
@@ -50,7 +56,7 @@ public class ThrownPotion extends CustomEntityProjectile implements ItemHoldingP
 		
 		if (!potions.isEmpty()) {
 			if (item.material() == Material.LINGERING_POTION) {
-				//TODO lingering
+				spawnCloud(potionContents);
 			} else {
 				applySplash(potionContents, entity);
 			}
@@ -76,27 +82,34 @@ public class ThrownPotion extends CustomEntityProjectile implements ItemHoldingP
 	
 	private void applySplash(PotionContents potionContents, @Nullable Entity hitEntity) {
 		BoundingBox boundingBox = getBoundingBox().expand(8.0, 4.0, 8.0);
-		List<LivingEntity> entities = Objects.requireNonNull(getInstance()).getEntities().stream()
-				.filter(entity -> boundingBox.intersectEntity(getPosition().add(0, -2, 0), entity))
-				.filter(entity -> entity instanceof LivingEntity
-						&& !(entity instanceof Player player && player.getGameMode() == GameMode.SPECTATOR))
-				.map(entity -> (LivingEntity) entity).collect(Collectors.toList());
-		
-		if (hitEntity instanceof LivingEntity && !entities.contains(hitEntity))
-			entities.add((LivingEntity) hitEntity);
-		if (entities.isEmpty()) return;
-		
-		for (LivingEntity entity : entities) {
-			if (entity.getEntityType() == EntityType.ARMOR_STAND) continue;
+		List<LivingEntity> entities = SPLASH_TARGETS.get();
+		try {
+			EntityUtil.collectIntersecting(Objects.requireNonNull(getInstance()), boundingBox,
+					getPosition().add(0, -2, 0), EntityTracker.Target.LIVING_ENTITIES, entities);
+			entities.removeIf(entity -> entity instanceof Player player && player.getGameMode() == GameMode.SPECTATOR);
 			
-			double distanceSquared = getDistanceSquared(entity);
-			if (distanceSquared >= 16.0) continue;
+			if (hitEntity instanceof LivingEntity && !entities.contains(hitEntity))
+				entities.add((LivingEntity) hitEntity);
 			
-			double proximity = entity == hitEntity ? 1.0 : (1.0 - Math.sqrt(distanceSquared) / 4.0);
-			effectFeature.addSplashPotionEffects(entity, potionContents, proximity, this, getShooter());
+			for (LivingEntity entity : entities) {
+				if (entity.getEntityType() == EntityType.ARMOR_STAND) continue;
+				
+				double distanceSquared = getDistanceSquared(entity);
+				if (distanceSquared >= 16.0) continue;
+				
+				double proximity = entity == hitEntity ? 1.0 : (1.0 - Math.sqrt(distanceSquared) / 4.0);
+				effectFeature.addSplashPotionEffects(entity, potionContents, proximity, this, getShooter());
+			}
+		} finally {
+			entities.clear();
 		}
 	}
 	
+	private void spawnCloud(PotionContents potionContents) {
+		AreaEffectCloud cloud = new AreaEffectCloud(getShooter(), potionContents, effectFeature);
+		cloud.setInstance(Objects.requireNonNull(getInstance()), getPosition().withView(0, 0));
+	}
+	
 	@NotNull
 	public ItemStack getItem() {
 		return ((ThrownPotionMeta) getEntityMeta()).getItem();
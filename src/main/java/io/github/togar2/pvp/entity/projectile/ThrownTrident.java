@@ -35,6 +35,12 @@ public class ThrownTrident extends AbstractArrow {
 				.enchantments().isEmpty());
 	}
 	
+	@Override
+	protected boolean isLimited() {
+		// Removing a trident would lose the item
+		return false;
+	}
+	
 	@Override
 	public void update(long time) {
 		if (stuckTime > 4) damageDone = true;
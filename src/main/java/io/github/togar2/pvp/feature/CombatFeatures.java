@@ -79,6 +79,10 @@ public class CombatFeatures {
 	 * @see VanillaDamageFeature
 	 */
 	public static final DefinedFeature<VanillaDamageFeature> VANILLA_DAMAGE = VanillaDamageFeature.DEFINED;
+	/**
+	 * @see VanillaDamageFeature#QUEUED
+	 */
+	public static final DefinedFeature<VanillaDamageFeature> VANILLA_QUEUED_DAMAGE = VanillaDamageFeature.QUEUED;
 	/**
 	 * @see VanillaEffectFeature
 	 */
@@ -91,6 +95,14 @@ public class CombatFeatures {
 	 * @see VanillaExplosionFeature
 	 */
 	public static final DefinedFeature<VanillaExplosionFeature> VANILLA_EXPLOSION = VanillaExplosionFeature.DEFINED;
+	/**
+	 * @see VanillaExplosionFeature#ASYNC
+	 */
+	public static final DefinedFeature<VanillaExplosionFeature> VANILLA_ASYNC_EXPLOSION = VanillaExplosionFeature.ASYNC;
+	/**
+	 * @see VanillaExplosionFeature#MERGING
+	 */
+	public static final DefinedFeature<VanillaExplosionFeature> VANILLA_MERGING_EXPLOSION = VanillaExplosionFeature.MERGING;
 	/**
 	 * @see VanillaExplosiveFeature
 	 */
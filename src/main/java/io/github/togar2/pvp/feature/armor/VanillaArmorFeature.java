@@ -7,7 +7,6 @@ import io.github.togar2.pvp.feature.config.DefinedFeature;
 import io.github.togar2.pvp.feature.config.FeatureConfiguration;
 import io.github.togar2.pvp.feature.enchantment.EnchantmentFeature;
 import io.github.togar2.pvp.utils.CombatVersion;
-import net.minestom.server.MinecraftServer;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.attribute.Attribute;
 import net.minestom.server.entity.damage.DamageType;
@@ -40,9 +39,9 @@ public class VanillaArmorFeature implements ArmorFeature, CombatFeature {
 	
 	@Override
 	public float getDamageWithProtection(LivingEntity entity, DamageType type, float amount) {
-		DamageTypeInfo info = DamageTypeInfo.of(MinecraftServer.getDamageTypeRegistry().getKey(type));
+		DamageTypeInfo info = DamageTypeInfo.of(type);
 		amount = getDamageWithArmor(entity, info, amount);
-		return getDamageWithEnchantments(entity, type, amount);
+		return getDamageWithEnchantments(entity, type, info, amount);
 	}
 	
 	protected float getDamageWithArmor(LivingEntity entity, DamageTypeInfo typeInfo, float amount) {
@@ -60,8 +59,8 @@ public class VanillaArmorFeature implements ArmorFeature, CombatFeature {
 		}
 	}
 	
-	protected float getDamageWithEnchantments(LivingEntity entity, DamageType damageType, float amount) {
-		DamageTypeInfo damageTypeInfo = DamageTypeInfo.of(MinecraftServer.getDamageTypeRegistry().getKey(damageType));
+	protected float getDamageWithEnchantments(LivingEntity entity, DamageType damageType,
+	                                          DamageTypeInfo damageTypeInfo, float amount) {
 		if (damageTypeInfo.unblockable()) return amount;
 		
 		int k;
@@ -14,17 +14,18 @@ import io.github.togar2.pvp.feature.food.ExhaustionFeature;
 import io.github.togar2.pvp.feature.item.ItemDamageFeature;
 import io.github.togar2.pvp.feature.knockback.KnockbackFeature;
 import io.github.togar2.pvp.player.CombatPlayer;
+import io.github.togar2.pvp.utils.CombatEventHandles;
 import io.github.togar2.pvp.utils.CombatVersion;
+import io.github.togar2.pvp.utils.PacketBundle;
 import io.github.togar2.pvp.utils.ViewUtil;
-import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.sound.Sound;
 import net.minestom.server.ServerFlag;
+import net.minestom.server.adventure.AdventurePacketConvertor;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.entity.*;
 import net.minestom.server.entity.attribute.Attribute;
 import net.minestom.server.entity.damage.Damage;
 import net.minestom.server.entity.damage.DamageType;
-import net.minestom.server.event.EventDispatcher;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.event.entity.EntityAttackEvent;
 import net.minestom.server.event.trait.EntityInstanceEvent;
@@ -89,12 +90,21 @@ public class VanillaAttackFeature implements AttackFeature, RegistrableFeature {
 
 	@Override
 	public boolean performAttack(LivingEntity attacker, Entity target) {
-		PrepareAttackEvent prepareAttackEvent = new PrepareAttackEvent(attacker, target);
-		EventDispatcher.call(prepareAttackEvent);
-		if (prepareAttackEvent.isCancelled()) return false;
+		if (CombatEventHandles.PREPARE_ATTACK.hasListener()) {
+			PrepareAttackEvent prepareAttackEvent = new PrepareAttackEvent(attacker, target);
+			CombatEventHandles.PREPARE_ATTACK.call(prepareAttackEvent);
+			if (prepareAttackEvent.isCancelled()) return false;
+		}
 		AttackValues.Final attack = prepareAttack(attacker, target);
 		if (attack == null) return false; // Event cancelled
 
+		// Let viewers handle all packets of this attack in the same frame
+		try (PacketBundle ignored = PacketBundle.open(attacker, target)) {
+			return performAttack(attacker, target, attack);
+		}
+	}
+
+	protected boolean performAttack(LivingEntity attacker, Entity target, AttackValues.Final attack) {
 		float originalHealth = 0;
 		boolean damageSucceeded = false;
 		if (target instanceof LivingEntity livingTarget) {
@@ -129,31 +139,13 @@ public class VanillaAttackFeature implements AttackFeature, RegistrableFeature {
 
 		// Play attack sounds
 		if (attack.sounds()) {
-			Audience audience = attacker.getViewersAsAudience();
-			if (attacker instanceof Player player)
-				audience = Audience.audience(audience, player);
-
-			if (attack.sprint()) audience.playSound(Sound.sound(
-				SoundEvent.ENTITY_PLAYER_ATTACK_KNOCKBACK, Sound.Source.PLAYER,
-				1.0f, 1.0f
-			), attacker);
-
-			if (attack.sweeping()) audience.playSound(Sound.sound(
-				SoundEvent.ENTITY_PLAYER_ATTACK_SWEEP, Sound.Source.PLAYER,
-				1.0f, 1.0f
-			), attacker);
-
-			if (attack.critical()) audience.playSound(Sound.sound(
-				SoundEvent.ENTITY_PLAYER_ATTACK_CRIT, Sound.Source.PLAYER,
-				1.0f, 1.0f
-			), attacker);
-
-			if (!attack.critical() && !attack.sweeping()) audience.playSound(Sound.sound(
-				attack.strong() ?
-					SoundEvent.ENTITY_PLAYER_ATTACK_STRONG :
-					SoundEvent.ENTITY_PLAYER_ATTACK_WEAK,
-				Sound.Source.PLAYER, 1.0f, 1.0f
-			), attacker);
+			if (attack.sprint()) playAttackSound(attacker, SoundEvent.ENTITY_PLAYER_ATTACK_KNOCKBACK);
+			if (attack.sweeping()) playAttackSound(attacker, SoundEvent.ENTITY_PLAYER_ATTACK_SWEEP);
+			if (attack.critical()) playAttackSound(attacker, SoundEvent.ENTITY_PLAYER_ATTACK_CRIT);
+
+			if (!attack.critical() && !attack.sweeping()) playAttackSound(attacker, attack.strong() ?
+				SoundEvent.ENTITY_PLAYER_ATTACK_STRONG :
+				SoundEvent.ENTITY_PLAYER_ATTACK_WEAK);
 		}
 
 		// Play attack effects
@@ -197,6 +189,13 @@ public class VanillaAttackFeature implements AttackFeature, RegistrableFeature {
 		return true;
 	}
 
+	protected void playAttackSound(LivingEntity attacker, SoundEvent sound) {
+		attacker.sendPacketToViewersAndSelf(AdventurePacketConvertor.createSoundPacket(
+			Sound.sound(sound, Sound.Source.PLAYER, 1.0f, 1.0f),
+			attacker
+		));
+	}
+
 	protected @Nullable AttackValues.Final prepareAttack(LivingEntity attacker, Entity target) {
 		float damage = (float) attacker.getAttributeValue(Attribute.ATTACK_DAMAGE);
 		float magicalDamage = enchantmentFeature.getAttackDamage(
@@ -233,19 +232,25 @@ public class VanillaAttackFeature implements AttackFeature, RegistrableFeature {
 
 		boolean sounds = version.modern();
 
-		// Call event which can modify attack values
-		FinalAttackEvent finalAttackEvent = new FinalAttackEvent(
-			attacker, target, sprintAttack, critical, sweeping, damage,
-			magicalDamage, sounds, sounds
-		);
-		EventDispatcher.call(finalAttackEvent);
-		if (finalAttackEvent.isCancelled()) return null;
+		boolean playSoundsOnFail = sounds;
 
-		sprintAttack = finalAttackEvent.isSprint();
-		critical = finalAttackEvent.isCritical();
-		sweeping = finalAttackEvent.isSweeping();
-		damage = finalAttackEvent.getBaseDamage();
-		magicalDamage = finalAttackEvent.getEnchantsExtraDamage();
+		// Call event which can modify attack values
+		if (CombatEventHandles.FINAL_ATTACK.hasListener()) {
+			FinalAttackEvent finalAttackEvent = new FinalAttackEvent(
+				attacker, target, sprintAttack, critical, sweeping, damage,
+				magicalDamage, sounds, playSoundsOnFail
+			);
+			CombatEventHandles.FINAL_ATTACK.call(finalAttackEvent);
+			if (finalAttackEvent.isCancelled()) return null;
+
+			sprintAttack = finalAttackEvent.isSprint();
+			critical = finalAttackEvent.isCritical();
+			sweeping = finalAttackEvent.isSweeping();
+			damage = finalAttackEvent.getBaseDamage();
+			magicalDamage = finalAttackEvent.getEnchantsExtraDamage();
+			sounds = finalAttackEvent.hasAttackSounds();
+			playSoundsOnFail = finalAttackEvent.playSoundsOnFail();
+		}
 
 		// Apply critical damage and knockback
 		if (critical) damage = criticalFeature.applyToDamage(damage);
@@ -256,8 +261,7 @@ public class VanillaAttackFeature implements AttackFeature, RegistrableFeature {
 		return new AttackValues.Final(
 			damage, strongAttack, sprintAttack, knockback, critical,
 			magicalDamage > 0, fireAspect, sweeping,
-			finalAttackEvent.hasAttackSounds(),
-			finalAttackEvent.playSoundsOnFail()
+			sounds, playSoundsOnFail
 		);
 	}
 }
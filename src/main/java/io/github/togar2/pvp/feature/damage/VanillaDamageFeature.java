@@ -1,6 +1,7 @@
 package io.github.togar2.pvp.feature.damage;
 
 import io.github.togar2.pvp.damage.DamageTypeInfo;
+import io.github.togar2.pvp.damage.DamageTypeTable;
 import io.github.togar2.pvp.events.EntityPreDeathEvent;
 import io.github.togar2.pvp.events.FinalDamageEvent;
 import io.github.togar2.pvp.feature.FeatureType;
@@ -15,17 +16,18 @@ import io.github.togar2.pvp.feature.knockback.KnockbackFeature;
 import io.github.togar2.pvp.feature.provider.DifficultyProvider;
 import io.github.togar2.pvp.feature.totem.TotemFeature;
 import io.github.togar2.pvp.feature.tracking.TrackingFeature;
+import io.github.togar2.pvp.utils.CombatEventHandles;
+import io.github.togar2.pvp.utils.CombatStateStore;
+import io.github.togar2.pvp.utils.CombatTagIndex;
 import io.github.togar2.pvp.utils.CombatVersion;
 import io.github.togar2.pvp.utils.EntityUtil;
 import net.kyori.adventure.sound.Sound;
-import net.minestom.server.MinecraftServer;
 import net.minestom.server.entity.Entity;
 import net.minestom.server.entity.EquipmentSlot;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.Player;
 import net.minestom.server.entity.damage.Damage;
 import net.minestom.server.entity.damage.DamageType;
-import net.minestom.server.event.EventDispatcher;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.event.entity.EntityDamageEvent;
 import net.minestom.server.event.trait.EntityInstanceEvent;
@@ -34,8 +36,11 @@ import net.minestom.server.network.packet.server.play.SoundEffectPacket;
 import net.minestom.server.potion.PotionEffect;
 import net.minestom.server.sound.SoundEvent;
 import net.minestom.server.tag.Tag;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Vanilla implementation of {@link DamageFeature}.
@@ -49,10 +54,21 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 			FeatureType.ITEM_DAMAGE, FeatureType.VERSION
 	);
 	
-	public static final Tag<Long> NEW_DAMAGE_TIME = Tag.Long("newDamageTime");
-	public static final Tag<Float> LAST_DAMAGE_AMOUNT = Tag.Float("lastDamageAmount");
+	/**
+	 * Variant of {@link #DEFINED} which queues all damage an entity takes during a tick and resolves it on its next tick,
+	 * see {@link VanillaDamageFeature#VanillaDamageFeature(FeatureConfiguration, boolean)}.
+	 */
+	public static final DefinedFeature<VanillaDamageFeature> QUEUED = new DefinedFeature<>(
+			FeatureType.DAMAGE, configuration -> new VanillaDamageFeature(configuration, true),
+			FeatureType.DIFFICULTY, FeatureType.BLOCK, FeatureType.ARMOR, FeatureType.TOTEM,
+			FeatureType.EXHAUSTION, FeatureType.KNOCKBACK, FeatureType.TRACKING,
+			FeatureType.ITEM_DAMAGE, FeatureType.VERSION
+	);
+	
+	private static final Tag<DamageQueue> DAMAGE_QUEUE = Tag.Transient("damageQueue");
 	
 	private final FeatureConfiguration configuration;
+	private final boolean queueDamage;
 	
 	private DifficultyProvider difficultyProvider;
 	
@@ -67,7 +83,36 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 	private CombatVersion version;
 	
 	public VanillaDamageFeature(FeatureConfiguration configuration) {
+		this(configuration, false);
+	}
+	
+	/**
+	 * Creates a new damage feature.
+	 * <p>
+	 * If {@code queueDamage} is true, damage is not resolved immediately. All hits an entity takes during a tick
+	 * are collected until the next tick of the entity, where they are resolved in one pass from the highest to the lowest amount.
+	 * Since every hit after the first one only deals the part above the last damage amount,
+	 * only the strongest hit is resolved, and the others are discarded.
+	 * An entity gets at most one {@link FinalDamageEvent}, damage packet and hurt sound per tick.
+	 * This greatly reduces the work done when explosions, sweeping or splash potions hit an entity many times in one tick.
+	 * <p>
+	 * Listeners of {@link EntityDamageEvent} see every hit when it is dealt, the hit is only queued if the event
+	 * is not cancelled by then. The resolved hit is not called as an {@link EntityDamageEvent} again.
+	 * The amount of the original damage is set to 0, the last damage of the entity is set to the resolved hit
+	 * (or kept as it was if nothing got through) when the queue is resolved.
+	 * Health, knockback, totems and death are only applied when the queue is resolved.
+	 * <p>
+	 * {@link LivingEntity#damage(Damage)} returns true for the first hit while the entity is not invulnerable,
+	 * and false for all other hits, even the ones which would deal more damage than the last one.
+	 * Callers only apply their side effects of a successful hit, like fire aspect, burning arrows and thorns,
+	 * if the call returned true, so these are dropped for such stronger hits.
+	 *
+	 * @param configuration the feature configuration
+	 * @param queueDamage whether to queue damage during invulnerability
+	 */
+	public VanillaDamageFeature(FeatureConfiguration configuration, boolean queueDamage) {
 		this.configuration = configuration;
+		this.queueDamage = queueDamage;
 	}
 	
 	@Override
@@ -89,6 +134,40 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 	}
 	
 	protected void handleDamage(EntityDamageEvent event) {
+		LivingEntity entity = event.getEntity();
+		
+		if (queueDamage) {
+			if (!event.isCancelled()) queueDamage(entity, getDamageQueue(entity), event);
+			return;
+		}
+		
+		handleDamage(event, entity.getAliveTicks());
+	}
+	
+	/**
+	 * Handles damage as if it was dealt at the specified alive tick of the entity.
+	 * <p>
+	 * If the event is not cancelled afterwards, the damage amount still has to be subtracted from the health of the entity,
+	 * which Minestom does after calling the event. If it is cancelled, the damage was either rejected
+	 * or already subtracted here (for hits during invulnerability, which should not count as a successful damage call).
+	 *
+	 * @param event the damage event
+	 * @param aliveTicks the alive ticks of the entity at the time the damage was dealt
+	 */
+	protected void handleDamage(EntityDamageEvent event, long aliveTicks) {
+		handleDamage(event, aliveTicks, false);
+	}
+	
+	/**
+	 * Handles damage as if it was dealt at the specified alive tick of the entity.
+	 * If {@code resolvingQueue} is true, the event is never cancelled to subtract the damage here,
+	 * so a cancelled event always means the damage was rejected.
+	 *
+	 * @param event the damage event
+	 * @param aliveTicks the alive ticks of the entity at the time the damage was dealt
+	 * @param resolvingQueue whether the damage is resolved from the damage queue
+	 */
+	protected void handleDamage(EntityDamageEvent event, long aliveTicks, boolean resolvingQueue) {
 		// We will handle sound and animation ourselves
 		event.setAnimation(false);
 		SoundEvent sound = event.getSound();
@@ -98,10 +177,10 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 		Damage damage = event.getDamage();
 		Entity attacker = damage.getAttacker();
 		
-		DamageType damageType = MinecraftServer.getDamageTypeRegistry().get(damage.getType());
+		DamageTypeTable.Entry typeEntry = DamageTypeTable.get(damage.getType());
+		DamageType damageType = typeEntry.type();
 		assert damageType != null;
-		
-		DamageTypeInfo typeInfo = DamageTypeInfo.of(damage.getType());
+		DamageTypeInfo typeInfo = typeEntry.info();
 		if (event.getEntity() instanceof Player player && typeInfo.shouldScaleWithDifficulty(damage))
 			damage.setAmount(scaleWithDifficulty(player, damage.getAmount()));
 		
@@ -119,9 +198,7 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 		
 		float amount = damage.getAmount();
 		
-		if (typeInfo.freeze() && Objects.requireNonNull(MinecraftServer.getTagManager().getTag(
-						net.minestom.server.gamedata.tags.Tag.BasicType.ENTITY_TYPES, "minecraft:freeze_hurts_extra_types"))
-				.contains(entity.getEntityType().namespace())) {
+		if (typeInfo.freeze() && CombatTagIndex.isFreezeHurtsExtra(entity.getEntityType())) {
 			amount *= 5.0F;
 		}
 		
@@ -134,9 +211,9 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 		
 		// Invulnerability ticks
 		boolean hurtSoundAndAnimation = true;
-		long newDamageTime = entity.hasTag(NEW_DAMAGE_TIME) ? entity.getTag(NEW_DAMAGE_TIME) : -10000;
-		if (entity.getAliveTicks() - newDamageTime < 0) {
-			float lastDamage = entity.hasTag(LAST_DAMAGE_AMOUNT) ? entity.getTag(LAST_DAMAGE_AMOUNT) : 0;
+		long newDamageTime = CombatStateStore.getInvulnerableUntil(entity);
+		if (aliveTicks - newDamageTime < 0) {
+			float lastDamage = CombatStateStore.getLastDamage(entity);
 			
 			if (amount <= lastDamage) {
 				event.setCancelled(true);
@@ -151,14 +228,21 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 		amount = armorFeature.getDamageWithProtection(entity, damageType, amount);
 		
 		damage.setAmount(amount);
-		FinalDamageEvent finalDamageEvent = new FinalDamageEvent(entity, damage, 10, FinalDamageEvent.AnimationType.MODERN);
-		EventDispatcher.call(finalDamageEvent);
-		// New amount has been set in the Damage class
-		amount = damage.getAmount();
-		
-		if (finalDamageEvent.isCancelled()) {
-			event.setCancelled(true);
-			return;
+		int invulnerabilityTicks = 10;
+		FinalDamageEvent.AnimationType animationType = FinalDamageEvent.AnimationType.MODERN;
+		if (CombatEventHandles.FINAL_DAMAGE.hasListener()) {
+			FinalDamageEvent finalDamageEvent = new FinalDamageEvent(entity, damage, invulnerabilityTicks, animationType);
+			CombatEventHandles.FINAL_DAMAGE.call(finalDamageEvent);
+			// New amount has been set in the Damage class
+			amount = damage.getAmount();
+			
+			if (finalDamageEvent.isCancelled()) {
+				event.setCancelled(true);
+				return;
+			}
+			
+			invulnerabilityTicks = finalDamageEvent.getInvulnerabilityTicks();
+			animationType = finalDamageEvent.getAnimationType();
 		}
 		
 		// Register damage to tracking feature
@@ -170,23 +254,21 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 		if (amountBeforeProcessing != 0 && entity instanceof Player player)
 			exhaustionFeature.addDamageExhaustion(player, damageType);
 		
-		if (register) entity.setTag(LAST_DAMAGE_AMOUNT, amountBeforeProcessing);
+		if (register) CombatStateStore.setLastDamage(entity, amountBeforeProcessing);
 		
 		if (hurtSoundAndAnimation) {
-			entity.setTag(NEW_DAMAGE_TIME, entity.getAliveTicks() + finalDamageEvent.getInvulnerabilityTicks());
+			CombatStateStore.setInvulnerableUntil(entity, aliveTicks + invulnerabilityTicks);
 			
 			if (fullyBlocked) {
 				// Shield status
 				entity.triggerStatus((byte) 29);
 			} else {
 				// Send damage animation
-				FinalDamageEvent.AnimationType animationType = finalDamageEvent.getAnimationType();
-				
 				if (animationType != FinalDamageEvent.AnimationType.NONE) {
 					boolean legacyAnimation = animationType == FinalDamageEvent.AnimationType.LEGACY;
 					entity.sendPacketToViewersAndSelf(new DamageEventPacket(
 							entity.getEntityId(),
-							MinecraftServer.getDamageTypeRegistry().getId(damage.getType()),
+							typeEntry.id(),
 							legacyAnimation || damage.getAttacker() == null ? 0 : damage.getAttacker().getEntityId() + 1,
 							legacyAnimation || damage.getSource() == null ? 0 : damage.getSource().getEntityId() + 1,
 							null
@@ -228,7 +310,7 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 			// Workaround to have different types make a different sound,
 			// but only if the sound has not been changed by damage#getSound
 			if (entity instanceof Player && sound == SoundEvent.ENTITY_PLAYER_HURT) {
-				String effects = Objects.requireNonNull(damageType.registry()).effects();
+				String effects = typeEntry.effects();
 				if (effects != null) sound = switch (effects) {
 					case "thorns" -> SoundEvent.ENCHANT_THORNS_HIT;
 					case "drowning" -> SoundEvent.ENTITY_PLAYER_HURT_DROWN;
@@ -250,9 +332,9 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 		
 		damage.setAmount(amount);
 		
-		if (death && !event.isCancelled()) {
+		if (death && !event.isCancelled() && CombatEventHandles.ENTITY_PRE_DEATH.hasListener()) {
 			EntityPreDeathEvent entityPreDeathEvent = new EntityPreDeathEvent(entity, damage);
-			EventDispatcher.call(entityPreDeathEvent);
+			CombatEventHandles.ENTITY_PRE_DEATH.call(entityPreDeathEvent);
 			if (entityPreDeathEvent.isCancelled()) event.setCancelled(true);
 			if (entityPreDeathEvent.isCancelDeath()) amount = 0;
 		}
@@ -264,12 +346,119 @@ public class VanillaDamageFeature implements DamageFeature, RegistrableFeature {
 		
 		// The Minestom damage method should return false if there was no hurt animation,
 		// because otherwise the attack feature will deal extra knockback
-		if (!event.isCancelled() && !hurtSoundAndAnimation) {
+		if (!event.isCancelled() && !hurtSoundAndAnimation && !resolvingQueue) {
 			event.setCancelled(true);
 			damageManually(entity, amount);
 		}
 	}
 	
+	private static DamageQueue getDamageQueue(LivingEntity entity) {
+		DamageQueue queue = entity.getTag(DAMAGE_QUEUE);
+		if (queue != null) return queue;
+		
+		synchronized (entity) {
+			queue = entity.getTag(DAMAGE_QUEUE);
+			if (queue == null) {
+				queue = new DamageQueue();
+				entity.setTag(DAMAGE_QUEUE, queue);
+			}
+			return queue;
+		}
+	}
+	
+	protected void queueDamage(LivingEntity entity, DamageQueue queue, EntityDamageEvent event) {
+		Damage damage = event.getDamage();
+		long aliveTicks = entity.getAliveTicks();
+		
+		// The damage object might be reused by the caller (e.g. explosions), so copy it
+		QueuedDamage queued = new QueuedDamage(new Damage(
+				damage.getType(), damage.getSource(), damage.getAttacker(),
+				damage.getSourcePosition(), damage.getAmount()
+		), event.getSound(), aliveTicks);
+		
+		boolean hurt = aliveTicks - CombatStateStore.getInvulnerableUntil(entity) >= 0;
+		int added = queue.add(queued, hurt, entity.getLastDamageSource(), damage);
+		if ((added & DamageQueue.FIRST) != 0) entity.scheduleNextTick(e -> resolveQueue((LivingEntity) e, queue));
+		
+		// Not cancelling a hurt hit makes the damage call return true, the amount is applied when resolving
+		event.setAnimation(false);
+		event.setSound(null);
+		damage.setAmount(0);
+		if ((added & DamageQueue.HURT) == 0) event.setCancelled(true);
+	}
+	
+	protected void resolveQueue(LivingEntity entity, DamageQueue queue) {
+		List<QueuedDamage> hits = queue.drain(entity);
+		if (hits.isEmpty() || entity.isRemoved() || entity.isDead()) return;
+		
+		// Strongest first, the sort is stable so equal amounts keep the order they were dealt in
+		hits.sort(Comparator.comparingDouble((QueuedDamage queued) -> queued.damage().getAmount()).reversed());
+		
+		// Every hit after the first one passing the invulnerability check is weaker and falls within its invulnerability,
+		// so it would be discarded
+		for (QueuedDamage queued : hits) {
+			long invulnerableUntil = CombatStateStore.getInvulnerableUntil(entity);
+			float lastDamage = CombatStateStore.getLastDamage(entity);
+			
+			EntityDamageEvent event = new EntityDamageEvent(entity, queued.damage(), queued.sound());
+			handleDamage(event, queued.aliveTicks(), true);
+			
+			if (!event.isCancelled()) {
+				damageManually(entity, event.getDamage().getAmount());
+				return;
+			}
+			
+			// Blocked by a shield or saved by a totem, but the invulnerability has been updated
+			if (entity.isDead() || invulnerableUntil != CombatStateStore.getInvulnerableUntil(entity)
+					|| lastDamage != CombatStateStore.getLastDamage(entity)) return;
+		}
+	}
+	
+	public record QueuedDamage(Damage damage, @Nullable SoundEvent sound, long aliveTicks) {}
+	
+	/**
+	 * The damage an entity has taken since its last tick, see {@link #VanillaDamageFeature(FeatureConfiguration, boolean)}.
+	 * Damage can be queued from any thread, the queue is resolved on the thread ticking the entity.
+	 */
+	public static final class DamageQueue {
+		static final int FIRST = 1, HURT = 1 << 1;
+		
+		private List<QueuedDamage> hits = new ArrayList<>();
+		
+		// The damage of the hurt hit, which Minestom records as last damage with an amount of 0, and the one it replaces
+		private Damage hurtDamage;
+		private Damage replacedLastDamage;
+		
+		/**
+		 * @return the flags of the hit: {@link #FIRST} if it is the first hit since the queue was drained,
+		 * and {@link #HURT} if it is the first hit with a hurt animation
+		 */
+		private synchronized int add(QueuedDamage queued, boolean hurt, @Nullable Damage lastDamage, Damage damage) {
+			hits.add(queued);
+			int flags = hits.size() == 1 ? FIRST : 0;
+			if (hurt && hurtDamage == null) {
+				hurtDamage = damage;
+				replacedLastDamage = lastDamage;
+				flags |= HURT;
+			}
+			return flags;
+		}
+		
+		/**
+		 * Takes the queued hits and restores the last damage of the entity from before the hurt hit.
+		 */
+		private synchronized List<QueuedDamage> drain(LivingEntity entity) {
+			if (hurtDamage != null && entity.getLastDamageSource() == hurtDamage)
+				EntityUtil.setLastDamage(entity, replacedLastDamage);
+			hurtDamage = null;
+			replacedLastDamage = null;
+			
+			List<QueuedDamage> hits = this.hits;
+			this.hits = new ArrayList<>();
+			return hits;
+		}
+	}
+	
 	protected float scaleWithDifficulty(Player player, float amount) {
 		return switch (difficultyProvider.getValue(player)) {
 			case PEACEFUL -> -1;
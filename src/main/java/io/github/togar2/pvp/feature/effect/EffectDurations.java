@@ -0,0 +1,93 @@
+package io.github.togar2.pvp.feature.effect;
+
+import net.minestom.server.potion.PotionEffect;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The duration left of the active effects of an entity, as tracked by {@link VanillaEffectFeature}.
+ * Durations are kept in an array indexed by the id of the potion effect, with a bitmask of the tracked effects.
+ */
+public final class EffectDurations {
+	private static final int EFFECT_COUNT = PotionEffect.values().size();
+	
+	private int[] durationLeft = new int[EFFECT_COUNT];
+	private long[] tracked = new long[(EFFECT_COUNT + 63) >>> 6];
+	// The effects seen during the current tick, which become the tracked effects when the tick finishes
+	private long[] seen = new long[tracked.length];
+	
+	/**
+	 * Gets the duration left of an effect.
+	 *
+	 * @param effect the potion effect
+	 * @return the duration left in ticks, or 0 if the effect is not tracked
+	 */
+	public synchronized int getDurationLeft(@NotNull PotionEffect effect) {
+		int id = effect.id();
+		return isSet(tracked, id) ? durationLeft[id] : 0;
+	}
+	
+	synchronized boolean isEmpty() {
+		for (long word : tracked) {
+			if (word != 0) return false;
+		}
+		return true;
+	}
+	
+	synchronized void set(PotionEffect effect, int duration) {
+		int id = effect.id();
+		ensureCapacity(id);
+		durationLeft[id] = duration;
+		set(tracked, id);
+		set(seen, id);
+	}
+	
+	/**
+	 * Counts down the duration of an active effect, starting at the given duration if it is not tracked yet.
+	 *
+	 * @return the duration left before counting down
+	 */
+	synchronized int tick(PotionEffect effect, int duration) {
+		int id = effect.id();
+		ensureCapacity(id);
+		if (!isSet(tracked, id)) {
+			durationLeft[id] = duration - 1;
+			set(tracked, id);
+		}
+		set(seen, id);
+		
+		int left = durationLeft[id];
+		if (left > 0) durationLeft[id] = left - 1;
+		return left;
+	}
+	
+	/**
+	 * Stops tracking the effects which were not active this tick.
+	 */
+	synchronized void finishTick() {
+		long[] tracked = this.tracked;
+		this.tracked = seen;
+		this.seen = tracked;
+		Arrays.fill(seen, 0);
+	}
+	
+	private void ensureCapacity(int id) {
+		if (id < durationLeft.length) return;
+		
+		// Effects registered after this class was loaded
+		int length = id + 1;
+		durationLeft = Arrays.copyOf(durationLeft, length);
+		tracked = Arrays.copyOf(tracked, (length + 63) >>> 6);
+		seen = Arrays.copyOf(seen, tracked.length);
+	}
+	
+	private static boolean isSet(long[] bits, int id) {
+		int word = id >>> 6;
+		return word < bits.length && (bits[word] & 1L << id) != 0;
+	}
+	
+	private static void set(long[] bits, int id) {
+		bits[id >>> 6] |= 1L << id;
+	}
+}
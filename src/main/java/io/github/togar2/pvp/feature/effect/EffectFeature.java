@@ -70,4 +70,16 @@ public interface EffectFeature extends CombatFeature {
 	 */
 	void addSplashPotionEffects(LivingEntity entity, PotionContents potionContents, double proximity,
 	                            @Nullable Entity source, @Nullable Entity attacker);
+	
+	/**
+	 * Applies the effects of a lingering potion cloud to an entity inside it.
+	 * Does nothing by default, so existing implementations of this interface do not have to implement it.
+	 *
+	 * @param entity   the entity inside the cloud
+	 * @param potions  the potions of the cloud, as returned by {@link #getAllPotions(PotionContents)}
+	 * @param source   the direct source of the effects (usually the cloud)
+	 * @param attacker the attacker (usually the thrower of the lingering potion)
+	 */
+	default void addLingeringPotionEffects(LivingEntity entity, List<Potion> potions,
+	                                       @Nullable Entity source, @Nullable Entity attacker) {}
 }
@@ -39,7 +39,6 @@ import net.minestom.server.utils.time.TimeUnit;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Vanilla implementation of {@link EffectFeature}
@@ -50,7 +49,12 @@ public class VanillaEffectFeature implements EffectFeature, RegistrableFeature {
 			FeatureType.EXHAUSTION, FeatureType.FOOD, FeatureType.VERSION
 	);
 	
+	/**
+	 * @deprecated no longer set, the durations are kept in {@link EffectDurations}, use {@link #EFFECT_DURATIONS} instead
+	 */
+	@Deprecated(forRemoval = true)
 	public static final Tag<Map<PotionEffect, Integer>> DURATION_LEFT = Tag.Transient("effectDurationLeft");
+	public static final Tag<EffectDurations> EFFECT_DURATIONS = Tag.Transient("effectDurations");
 	public static final int DEFAULT_POTION_COLOR = 0xff385dc6;
 	
 	private final FeatureConfiguration configuration;
@@ -77,11 +81,15 @@ public class VanillaEffectFeature implements EffectFeature, RegistrableFeature {
 		
 		node.addListener(EntityTickEvent.class, event -> {
 			if (!(event.getEntity() instanceof LivingEntity entity)) return;
-			Map<PotionEffect, Integer> potionMap = getDurationLeftMap(entity);
 			
-			for (TimedPotion potion : entity.getActiveEffects()) {
-				potionMap.putIfAbsent(potion.potion().effect(), potion.potion().duration() - 1);
-				int durationLeft = potionMap.get(potion.potion().effect());
+			// Most entities have no effects, do not create durations for them
+			Collection<TimedPotion> activeEffects = entity.getActiveEffects();
+			EffectDurations durations = entity.getTag(EFFECT_DURATIONS);
+			if (activeEffects.isEmpty() && (durations == null || durations.isEmpty())) return;
+			if (durations == null) durations = getDurations(entity);
+			
+			for (TimedPotion potion : activeEffects) {
+				int durationLeft = durations.tick(potion.potion().effect(), potion.potion().duration());
 				
 				if (durationLeft > 0) {
 					CombatPotionEffect combatPotionEffect = CombatPotionEffects.get(potion.potion().effect());
@@ -90,21 +98,16 @@ public class VanillaEffectFeature implements EffectFeature, RegistrableFeature {
 					if (combatPotionEffect.canApplyUpdateEffect(durationLeft, amplifier)) {
 						combatPotionEffect.applyUpdateEffect(entity, amplifier, exhaustionFeature, foodFeature);
 					}
-					
-					potionMap.put(potion.potion().effect(), durationLeft - 1);
 				}
 			}
 			
 			//TODO keep track of underlying potions with longer duration
-			if (potionMap.size() != entity.getActiveEffects().size()) {
-				potionMap.keySet().removeIf(effect -> !entity.hasEffect(effect));
-			}
+			durations.finishTick();
 		});
 		
 		node.addListener(EntityPotionAddEvent.class, event -> {
 			if (!(event.getEntity() instanceof LivingEntity entity)) return;
-			Map<PotionEffect, Integer> potionMap = getDurationLeftMap(entity);
-			potionMap.put(event.getPotion().effect(), event.getPotion().duration());
+			getDurations(entity).set(event.getPotion().effect(), event.getPotion().duration());
 			
 			CombatPotionEffect combatPotionEffect = CombatPotionEffects.get(event.getPotion().effect());
 			combatPotionEffect.onApplied(entity, (byte) event.getPotion().amplifier(), version);
@@ -126,13 +129,15 @@ public class VanillaEffectFeature implements EffectFeature, RegistrableFeature {
 		});
 	}
 	
-	private Map<PotionEffect, Integer> getDurationLeftMap(Entity entity) {
-		Map<PotionEffect, Integer> potionMap = entity.getTag(DURATION_LEFT);
-		if (potionMap == null) {
-			potionMap = new ConcurrentHashMap<>();
-			entity.setTag(DURATION_LEFT, potionMap);
+	private EffectDurations getDurations(Entity entity) {
+		synchronized (entity) {
+			EffectDurations durations = entity.getTag(EFFECT_DURATIONS);
+			if (durations == null) {
+				durations = new EffectDurations();
+				entity.setTag(EFFECT_DURATIONS, durations);
+			}
+			return durations;
 		}
-		return potionMap;
 	}
 	
 	@Override
@@ -274,4 +279,18 @@ public class VanillaEffectFeature implements EffectFeature, RegistrableFeature {
 			}
 		}
 	}
+	
+	@Override
+	public void addLingeringPotionEffects(LivingEntity entity, List<Potion> potions,
+	                                      @Nullable Entity source, @Nullable Entity attacker) {
+		for (Potion potion : potions) {
+			CombatPotionEffect combatPotionEffect = CombatPotionEffects.get(potion.effect());
+			if (combatPotionEffect.isInstant()) {
+				combatPotionEffect.applyInstantEffect(source, attacker,
+						entity, (byte) potion.amplifier(), 0.5, exhaustionFeature, foodFeature);
+			} else {
+				entity.addEffect(new Potion(potion.effect(), potion.amplifier(), potion.duration() / 4, potion.flags()));
+			}
+		}
+	}
 }
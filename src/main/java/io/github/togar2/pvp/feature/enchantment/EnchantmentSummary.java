@@ -0,0 +1,100 @@
+package io.github.togar2.pvp.feature.enchantment;
+
+import io.github.togar2.pvp.damage.DamageTypeTable;
+import io.github.togar2.pvp.enchantment.CombatEnchantment;
+import io.github.togar2.pvp.enchantment.CombatEnchantments;
+import io.github.togar2.pvp.feature.config.FeatureConfiguration;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minestom.server.entity.EquipmentSlot;
+import net.minestom.server.entity.LivingEntity;
+import net.minestom.server.entity.damage.DamageType;
+import net.minestom.server.item.ItemComponent;
+import net.minestom.server.item.ItemStack;
+import net.minestom.server.item.component.EnchantmentList;
+import net.minestom.server.item.enchant.Enchantment;
+import net.minestom.server.registry.DynamicRegistry;
+
+import java.util.Map;
+
+/**
+ * A summary of the enchantments on the equipment of an entity,
+ * containing the highest level of every enchantment on the slots it applies to
+ * and the protection amount of the armor per damage type.
+ * <p>
+ * The summary remembers the item stacks it was computed from,
+ * so it can check whether it is still valid for the current equipment of the entity.
+ */
+class EnchantmentSummary {
+	private static final EquipmentSlot[] SLOTS = EquipmentSlot.values();
+	
+	private final ItemStack[] stacks = new ItemStack[SLOTS.length];
+	private final Object2IntOpenHashMap<DynamicRegistry.Key<Enchantment>> levels = new Object2IntOpenHashMap<>();
+	private final Int2IntOpenHashMap protection = new Int2IntOpenHashMap();
+	
+	EnchantmentSummary(LivingEntity entity) {
+		protection.defaultReturnValue(Integer.MIN_VALUE);
+		
+		for (EquipmentSlot slot : SLOTS) {
+			ItemStack itemStack = entity.getEquipment(slot);
+			stacks[slot.ordinal()] = itemStack;
+			if (itemStack.isAir()) continue;
+			
+			EnchantmentList enchantmentList = itemStack.get(ItemComponent.ENCHANTMENTS);
+			if (enchantmentList == null) continue;
+			
+			for (Map.Entry<DynamicRegistry.Key<Enchantment>, Integer> entry : enchantmentList.enchantments().entrySet()) {
+				CombatEnchantment combatEnchantment = CombatEnchantments.get(entry.getKey());
+				if (combatEnchantment == null || !combatEnchantment.hasSlotType(slot)) continue;
+				
+				int level = entry.getValue();
+				if (level > levels.getInt(entry.getKey())) levels.put(entry.getKey(), level);
+			}
+		}
+	}
+	
+	boolean isValid(LivingEntity entity) {
+		for (EquipmentSlot slot : SLOTS) {
+			if (stacks[slot.ordinal()] != entity.getEquipment(slot)) return false;
+		}
+		return true;
+	}
+	
+	int getLevel(DynamicRegistry.Key<Enchantment> enchantment) {
+		return levels.getInt(enchantment);
+	}
+	
+	int getProtectionAmount(DamageType damageType, EnchantmentFeature feature, FeatureConfiguration configuration) {
+		// Damage types which are not registered have no id to remember the amount by
+		int id = DamageTypeTable.get(damageType).id();
+		if (id >= 0) {
+			// The summary can be read from several threads, e.g. when an entity is hit from another chunk
+			synchronized (protection) {
+				int amount = protection.get(id);
+				if (amount != Integer.MIN_VALUE) return amount;
+			}
+		}
+		
+		int amount = 0;
+		for (EquipmentSlot slot : EquipmentSlot.armors()) {
+			ItemStack itemStack = stacks[slot.ordinal()];
+			if (itemStack.isAir()) continue;
+			
+			EnchantmentList enchantmentList = itemStack.get(ItemComponent.ENCHANTMENTS);
+			if (enchantmentList == null) continue;
+			
+			for (Map.Entry<DynamicRegistry.Key<Enchantment>, Integer> entry : enchantmentList.enchantments().entrySet()) {
+				CombatEnchantment combatEnchantment = CombatEnchantments.get(entry.getKey());
+				if (combatEnchantment == null) continue;
+				amount += combatEnchantment.getProtectionAmount(entry.getValue(), damageType, feature, configuration);
+			}
+		}
+		
+		if (id >= 0) {
+			synchronized (protection) {
+				protection.put(id, amount);
+			}
+		}
+		return amount;
+	}
+}
@@ -20,10 +20,10 @@ import net.minestom.server.item.ItemStack;
 import net.minestom.server.item.component.EnchantmentList;
 import net.minestom.server.item.enchant.Enchantment;
 import net.minestom.server.registry.DynamicRegistry;
+import net.minestom.server.tag.Tag;
 
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 
@@ -38,6 +38,8 @@ public class VanillaEnchantmentFeature implements EnchantmentFeature, Registrabl
 			CombatEnchantments.getAllFeatureDependencies()
 	);
 	
+	private static final Tag<EnchantmentSummary> ENCHANTMENT_SUMMARY = Tag.Transient("enchantmentSummary");
+	
 	private final FeatureConfiguration configuration;
 	
 	public VanillaEnchantmentFeature(FeatureConfiguration configuration) {
@@ -66,16 +68,23 @@ public class VanillaEnchantmentFeature implements EnchantmentFeature, Registrabl
 	
 	@Override
 	public int getEquipmentLevel(LivingEntity entity, DynamicRegistry.Key<Enchantment> enchantment) {
-		Iterator<ItemStack> iterator = CombatEnchantments.get(enchantment).getEquipment(entity).values().iterator();
-		
-		int highest = 0;
-		while (iterator.hasNext()) {
-			ItemStack itemStack = iterator.next();
-			int level = itemStack.get(ItemComponent.ENCHANTMENTS).level(enchantment);
-			if (level > highest) highest = level;
+		return getSummary(entity).getLevel(enchantment);
+	}
+	
+	/**
+	 * Gets the enchantment summary of the entity's current equipment.
+	 * The summary is cached on the entity and is recomputed if the equipment has changed.
+	 *
+	 * @param entity the entity
+	 * @return the enchantment summary
+	 */
+	private EnchantmentSummary getSummary(LivingEntity entity) {
+		EnchantmentSummary summary = entity.getTag(ENCHANTMENT_SUMMARY);
+		if (summary == null || !summary.isValid(entity)) {
+			summary = new EnchantmentSummary(entity);
+			entity.setTag(ENCHANTMENT_SUMMARY, summary);
 		}
-		
-		return highest;
+		return summary;
 	}
 	
 	@Override
@@ -99,18 +108,7 @@ public class VanillaEnchantmentFeature implements EnchantmentFeature, Registrabl
 	
 	@Override
 	public int getProtectionAmount(LivingEntity entity, DamageType damageType) {
-		AtomicInteger result = new AtomicInteger();
-		
-		List<ItemStack> armorItems = new ArrayList<>();
-		for (EquipmentSlot slot : EquipmentSlot.armors()) {
-			if (slot.isArmor() && !entity.getEquipment(slot).isAir()) {
-				armorItems.add(entity.getEquipment(slot));
-			}
-		}
-		
-		forEachEnchantment(armorItems, (enchantment, level) ->
-				result.addAndGet(enchantment.getProtectionAmount(level, damageType, this, configuration)));
-		return result.get();
+		return getSummary(entity).getProtectionAmount(damageType, this, configuration);
 	}
 	
 	@Override
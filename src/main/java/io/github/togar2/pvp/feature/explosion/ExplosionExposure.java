@@ -0,0 +1,430 @@
+package io.github.togar2.pvp.feature.explosion;
+
+import io.github.togar2.pvp.utils.BlockStateTable;
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.collision.Shape;
+import net.minestom.server.collision.ShapeImpl;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.tag.Tag;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes how much of an entity is exposed to an explosion.
+ * <p>
+ * The sample rays are traced through the block grid with a voxel traversal on primitive doubles,
+ * testing against the collision boxes of every block state, which are collected once when this class is loaded.
+ * A ray is not blocked if it does not hit any block before it reaches the unit box at the center of the explosion,
+ * the same rule as {@link net.minestom.server.collision.CollisionUtils#isLineOfSightReachingShape} with a 1x1x1 shape.
+ * <p>
+ * Results are memoized per explosion center, exact entity position and bounding box for the current tick of an instance,
+ * so multiple explosions at the same place hitting the same entities do not trace the same rays again.
+ * The memo is kept per thread in a primitive open addressing table, so lookups do not allocate.
+ * The memos of all threads are cleared when an explosion changes blocks, see {@link #invalidate(Instance)}.
+ */
+public final class ExplosionExposure {
+	private static final double[][] BOXES_BY_STATE =
+			BlockStateTable.of(double[][]::new, state -> toBoxes(state.registry().collisionShape()));
+	private static final ThreadLocal<Memo> MEMO = ThreadLocal.withInitial(Memo::new);
+	private static final Tag<AtomicInteger> VERSION = Tag.Transient("explosionExposureVersion");
+	
+	private ExplosionExposure() {}
+	
+	/**
+	 * Gets the fraction of sample rays from the entity's bounding box which reach the explosion center.
+	 *
+	 * @param center the center of the explosion
+	 * @param entity the entity
+	 * @return the exposure, between 0 and 1
+	 */
+	public static double getExposure(Point center, Entity entity) {
+		Instance instance = entity.getInstance();
+		if (instance == null) return 0;
+		
+		BoundingBox box = entity.getBoundingBox();
+		Pos position = entity.getPosition();
+		
+		Memo memo = MEMO.get();
+		int version = version(instance).get();
+		if (memo.instance != instance || memo.worldAge != instance.getWorldAge() || memo.version != version) {
+			memo.instance = instance;
+			memo.worldAge = instance.getWorldAge();
+			memo.version = version;
+			memo.clear();
+		}
+		
+		double[] key = memo.key;
+		key[0] = center.x();
+		key[1] = center.y();
+		key[2] = center.z();
+		key[3] = position.x();
+		key[4] = position.y();
+		key[5] = position.z();
+		key[6] = box.minX();
+		key[7] = box.minY();
+		key[8] = box.minZ();
+		key[9] = box.width();
+		key[10] = box.height();
+		key[11] = box.depth();
+		
+		int slot = memo.find();
+		if (memo.contains(slot)) return memo.values[slot];
+		
+		double exposure = computeExposure(new Tracer(instance, null), center, box, position);
+		memo.put(exposure);
+		return exposure;
+	}
+	
+	/**
+	 * Gets the fraction of sample rays from a bounding box at a position which reach the explosion center,
+	 * reading the blocks from a getter instead of an instance. The result is not memoized.
+	 * If the getter is safe to read from other threads, like an {@link ExplosionSnapshot}, so is this method.
+	 *
+	 * @param blocks the blocks to trace the rays through
+	 * @param center the center of the explosion
+	 * @param box the bounding box
+	 * @param position the position of the bounding box
+	 * @return the exposure, between 0 and 1
+	 */
+	public static double getExposure(Block.Getter blocks, Point center, BoundingBox box, Point position) {
+		return computeExposure(new Tracer(null, blocks), center, box, position);
+	}
+	
+	/**
+	 * Clears the memoized exposures of the instance,
+	 * which has to be done when blocks change during a tick in which exposures have been computed.
+	 *
+	 * @param instance the instance
+	 */
+	public static void invalidate(Instance instance) {
+		version(instance).incrementAndGet();
+	}
+	
+	private static AtomicInteger version(Instance instance) {
+		AtomicInteger version = instance.getTag(VERSION);
+		if (version != null) return version;
+		
+		synchronized (instance) {
+			version = instance.getTag(VERSION);
+			if (version == null) {
+				version = new AtomicInteger();
+				instance.setTag(VERSION, version);
+			}
+			return version;
+		}
+	}
+	
+	private static double computeExposure(Tracer tracer, Point center, BoundingBox box, Point position) {
+		double xStep = 1 / (box.width() * 2 + 1);
+		double yStep = 1 / (box.height() * 2 + 1);
+		double zStep = 1 / (box.depth() * 2 + 1);
+		double g = (1 - Math.floor(1 / xStep) * xStep) / 2;
+		double h = (1 - Math.floor(1 / zStep) * zStep) / 2;
+		if (xStep < 0 || yStep < 0 || zStep < 0) return 0;
+		
+		double centerX = center.x(), centerY = center.y(), centerZ = center.z();
+		
+		int exposedCount = 0;
+		int rayCount = 0;
+		double dx = 0;
+		while (dx <= 1) {
+			double dy = 0;
+			while (dy <= 1) {
+				double dz = 0;
+				while (dz <= 1) {
+					double rayX = box.minX() + dx * box.width() + g + position.x();
+					double rayY = box.minY() + dy * box.height() + position.y();
+					double rayZ = box.minZ() + dz * box.depth() + h + position.z();
+					if (tracer.reaches(rayX, rayY, rayZ, centerX, centerY, centerZ)) exposedCount++;
+					rayCount++;
+					dz += zStep;
+				}
+				dy += yStep;
+			}
+			dx += xStep;
+		}
+		
+		return exposedCount / (double) rayCount;
+	}
+	
+	/**
+	 * Checks whether the line from start to end reaches the unit box at the end without hitting a block before it.
+	 *
+	 * @param instance the instance to check the blocks of
+	 * @param start the start of the line
+	 * @param end the end of the line
+	 * @return whether the line reaches the end
+	 */
+	public static boolean reaches(Instance instance, Point start, Point end) {
+		return new Tracer(instance, null).reaches(start.x(), start.y(), start.z(), end.x(), end.y(), end.z());
+	}
+	
+	/**
+	 * Traces lines through the blocks of an instance, remembering the last chunk it read from,
+	 * or through the blocks of a getter if there is no instance.
+	 */
+	private static final class Tracer {
+		private final Instance instance;
+		private final Block.Getter blocks;
+		private Chunk chunk;
+		
+		private Tracer(Instance instance, Block.Getter blocks) {
+			this.instance = instance;
+			this.blocks = blocks;
+		}
+		
+		private boolean reaches(double startX, double startY, double startZ, double endX, double endY, double endZ) {
+			double hit = firstHit(startX, startY, startZ, endX - startX, endY - startY, endZ - startZ);
+			if (hit > 1) return true;
+			
+			double hitX = startX + (endX - startX) * hit;
+			double hitY = startY + (endY - startY) * hit;
+			double hitZ = startZ + (endZ - startZ) * hit;
+			return hitX >= endX - 0.5 && hitX <= endX + 0.5
+					&& hitY >= endY && hitY <= endY + 1
+					&& hitZ >= endZ - 0.5 && hitZ <= endZ + 0.5;
+		}
+		
+		/**
+		 * Walks the blocks along the ray and returns the fraction of the ray at which it first hits a collision box,
+		 * or a value above 1 if it does not hit anything.
+		 */
+		private double firstHit(double x, double y, double z, double rx, double ry, double rz) {
+			int blockX = (int) Math.floor(x), blockY = (int) Math.floor(y), blockZ = (int) Math.floor(z);
+			int endX = (int) Math.floor(x + rx), endY = (int) Math.floor(y + ry), endZ = (int) Math.floor(z + rz);
+			
+			int stepX = rx > 0 ? 1 : -1, stepY = ry > 0 ? 1 : -1, stepZ = rz > 0 ? 1 : -1;
+			double deltaX = rx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / rx);
+			double deltaY = ry == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / ry);
+			double deltaZ = rz == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / rz);
+			double nextX = rx == 0 ? Double.POSITIVE_INFINITY : (rx > 0 ? blockX + 1 - x : x - blockX) * deltaX;
+			double nextY = ry == 0 ? Double.POSITIVE_INFINITY : (ry > 0 ? blockY + 1 - y : y - blockY) * deltaY;
+			double nextZ = rz == 0 ? Double.POSITIVE_INFINITY : (rz > 0 ? blockZ + 1 - z : z - blockZ) * deltaZ;
+			
+			while (true) {
+				double hit = Math.min(
+						hitInBlock(blockX, blockY, blockZ, x, y, z, rx, ry, rz),
+						// Blocks like fences and walls stick out into the block above them
+						hitInBlock(blockX, blockY - 1, blockZ, x, y, z, rx, ry, rz)
+				);
+				if (hit <= 1) return hit;
+				if (blockX == endX && blockY == endY && blockZ == endZ) return Double.POSITIVE_INFINITY;
+				
+				if (nextX < nextY && nextX < nextZ) {
+					if (nextX > 1) return Double.POSITIVE_INFINITY;
+					blockX += stepX;
+					nextX += deltaX;
+				} else if (nextY < nextZ) {
+					if (nextY > 1) return Double.POSITIVE_INFINITY;
+					blockY += stepY;
+					nextY += deltaY;
+				} else {
+					if (nextZ > 1) return Double.POSITIVE_INFINITY;
+					blockZ += stepZ;
+					nextZ += deltaZ;
+				}
+			}
+		}
+		
+		private double hitInBlock(int blockX, int blockY, int blockZ,
+		                          double x, double y, double z, double rx, double ry, double rz) {
+			double[] boxes = boxes(blockX, blockY, blockZ);
+			if (boxes == null) return Double.POSITIVE_INFINITY;
+			
+			double closest = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < boxes.length; i += 6) {
+				double hit = intersect(
+						x - blockX, y - blockY, z - blockZ, rx, ry, rz,
+						boxes[i], boxes[i + 1], boxes[i + 2], boxes[i + 3], boxes[i + 4], boxes[i + 5]
+				);
+				if (hit < closest) closest = hit;
+			}
+			return closest;
+		}
+		
+		private double[] boxes(int x, int y, int z) {
+			Block block;
+			if (instance == null) {
+				block = blocks.getBlock(x, y, z, Block.Getter.Condition.TYPE);
+			} else {
+				Chunk chunk = this.chunk;
+				if (chunk == null || chunk.getChunkX() != x >> 4 || chunk.getChunkZ() != z >> 4) {
+					chunk = instance.getChunk(x >> 4, z >> 4);
+					if (chunk == null) return null;
+					this.chunk = chunk;
+				}
+				if (y < chunk.getMinSection() * 16 || y >= chunk.getMaxSection() * 16) return null;
+				
+				block = chunk.getBlock(x, y, z, Block.Getter.Condition.TYPE);
+			}
+			
+			int stateId = block.stateId();
+			if (stateId >= 0 && stateId < BOXES_BY_STATE.length) return BOXES_BY_STATE[stateId];
+			return toBoxes(block.registry().collisionShape());
+		}
+	}
+	
+	/**
+	 * Slab test of a ray against a box, returns the fraction of the ray at which it enters the box,
+	 * 0 if it starts inside the box, or positive infinity if it does not hit the box within its length.
+	 * A ray which only touches the box, like one starting on a face and moving away from it, does not hit it.
+	 */
+	private static double intersect(double x, double y, double z, double rx, double ry, double rz,
+	                                double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		double enter = 0, exit = 1;
+		
+		if (rx == 0) {
+			if (x < minX || x > maxX) return Double.POSITIVE_INFINITY;
+		} else {
+			double t1 = (minX - x) / rx, t2 = (maxX - x) / rx;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		
+		if (ry == 0) {
+			if (y < minY || y > maxY) return Double.POSITIVE_INFINITY;
+		} else {
+			double t1 = (minY - y) / ry, t2 = (maxY - y) / ry;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		
+		if (rz == 0) {
+			if (z < minZ || z > maxZ) return Double.POSITIVE_INFINITY;
+		} else {
+			double t1 = (minZ - z) / rz, t2 = (maxZ - z) / rz;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		
+		return exit > enter ? enter : Double.POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * Flattens the collision boxes of a shape into {@code minX, minY, minZ, maxX, maxY, maxZ} groups.
+	 *
+	 * @param shape the shape
+	 * @return the flattened boxes, or null if the shape has no collision
+	 */
+	private static double[] toBoxes(Shape shape) {
+		if (shape instanceof ShapeImpl impl) {
+			List<BoundingBox> collisionBoxes = impl.collisionBoundingBoxes();
+			if (collisionBoxes.isEmpty()) return null;
+			
+			double[] boxes = new double[collisionBoxes.size() * 6];
+			for (int i = 0; i < collisionBoxes.size(); i++) {
+				BoundingBox box = collisionBoxes.get(i);
+				boxes[i * 6] = box.minX();
+				boxes[i * 6 + 1] = box.minY();
+				boxes[i * 6 + 2] = box.minZ();
+				boxes[i * 6 + 3] = box.maxX();
+				boxes[i * 6 + 4] = box.maxY();
+				boxes[i * 6 + 5] = box.maxZ();
+			}
+			return boxes;
+		}
+		
+		Point start = shape.relativeStart();
+		Point end = shape.relativeEnd();
+		if (start.x() >= end.x() || start.y() >= end.y() || start.z() >= end.z()) return null;
+		return new double[] {start.x(), start.y(), start.z(), end.x(), end.y(), end.z()};
+	}
+	
+	/**
+	 * Open addressing table from the 12 doubles of a key to an exposure.
+	 * Entries belong to the table if their generation is the current one, so clearing does not touch the arrays.
+	 */
+	private static final class Memo {
+		private static final int KEY_SIZE = 12;
+	
+		private final double[] key = new double[KEY_SIZE];
+		private double[] keys = new double[16 * KEY_SIZE];
+		private double[] values = new double[16];
+		private int[] generations = new int[16];
+		private int generation = 1;
+		private int size;
+		
+		private Instance instance;
+		private long worldAge;
+		private int version;
+		
+		private void clear() {
+			size = 0;
+			if (++generation == 0) {
+				Arrays.fill(generations, 0);
+				generation = 1;
+			}
+		}
+		
+		/**
+		 * Finds the slot of the current key, or the empty slot it would be put in.
+		 */
+		private int find() {
+			int mask = values.length - 1;
+			int slot = hash(key, 0) & mask;
+			while (generations[slot] == generation) {
+				if (matches(slot)) return slot;
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+		
+		private boolean contains(int slot) {
+			return generations[slot] == generation;
+		}
+		
+		private void put(double value) {
+			if ((size + 1) * 2 > values.length) grow();
+			int slot = find();
+			System.arraycopy(key, 0, keys, slot * KEY_SIZE, KEY_SIZE);
+			values[slot] = value;
+			generations[slot] = generation;
+			size++;
+		}
+		
+		private boolean matches(int slot) {
+			int offset = slot * KEY_SIZE;
+			for (int i = 0; i < KEY_SIZE; i++) {
+				if (keys[offset + i] != key[i]) return false;
+			}
+			return true;
+		}
+		
+		private void grow() {
+			double[] oldKeys = keys;
+			double[] oldValues = values;
+			int[] oldGenerations = generations;
+			
+			keys = new double[oldKeys.length * 2];
+			values = new double[oldValues.length * 2];
+			generations = new int[oldGenerations.length * 2];
+			
+			int mask = values.length - 1;
+			for (int oldSlot = 0; oldSlot < oldValues.length; oldSlot++) {
+				if (oldGenerations[oldSlot] != generation) continue;
+				
+				int slot = hash(oldKeys, oldSlot * KEY_SIZE) & mask;
+				while (generations[slot] == generation) slot = (slot + 1) & mask;
+				System.arraycopy(oldKeys, oldSlot * KEY_SIZE, keys, slot * KEY_SIZE, KEY_SIZE);
+				values[slot] = oldValues[oldSlot];
+				generations[slot] = generation;
+			}
+		}
+		
+		private static int hash(double[] keys, int offset) {
+			int hash = 1;
+			for (int i = 0; i < KEY_SIZE; i++) {
+				hash = 31 * hash + Double.hashCode(keys[offset + i]);
+			}
+			return HashCommon.mix(hash);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package io.github.togar2.pvp.feature.explosion;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.event.instance.InstanceUnregisterEvent;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spreads the work of explosions over multiple ticks, with a time budget per instance per tick.
+ * <p>
+ * Explosions of an instance are handled one after another in the order they were submitted,
+ * so their {@link io.github.togar2.pvp.events.ExplosionEvent}s and damage happen in the same order as without a scheduler.
+ * An explosion is handled immediately if there is no queue and the budget of the current tick has not been used up.
+ * Otherwise, it waits in the queue until a later tick has budget left.
+ * A single explosion can also be split, continuing in the next tick when the budget runs out:
+ * its rays are cast in batches, its entities are damaged one by one and its blocks are applied section by section.
+ * Rays which are cast in a later tick see the blocks of the instance as they are in that tick.
+ * <p>
+ * The queues are thread-safe, and the tasks of an instance never run concurrently.
+ * <p>
+ * Register a scheduler using {@link VanillaExplosionSupplier#setScheduler(ExplosionScheduler)}.
+ */
+public final class ExplosionScheduler {
+	private final long budgetNanos;
+	private final Map<Instance, InstanceQueue> queues = new ConcurrentHashMap<>();
+	
+	/**
+	 * Creates a new explosion scheduler.
+	 * The queue of an instance is dropped when the instance is unregistered.
+	 *
+	 * @param budget the time which explosions may take per instance per tick
+	 */
+	public ExplosionScheduler(@NotNull Duration budget) {
+		this.budgetNanos = budget.toNanos();
+		MinecraftServer.getGlobalEventHandler().addListener(InstanceUnregisterEvent.class,
+				event -> queues.remove(event.getInstance()));
+	}
+	
+	/**
+	 * A piece of explosion work which can be continued over multiple ticks.
+	 */
+	@FunctionalInterface
+	public interface Task {
+		/**
+		 * Continues the work of this task.
+		 *
+		 * @param deadline the {@link System#nanoTime()} at which the task should stop and continue in a later tick
+		 * @return true if the task has finished, false if it should be continued later
+		 */
+		boolean run(long deadline);
+	}
+	
+	/**
+	 * Submits explosion work for an instance.
+	 * If the instance has no queued work, the task starts running immediately on the calling thread,
+	 * so this should be called from the thread ticking the instance. Queued tasks run on the thread ticking the instance.
+	 *
+	 * @param instance the instance of the explosion
+	 * @param task the work
+	 */
+	public void submit(@NotNull Instance instance, @NotNull Task task) {
+		InstanceQueue queue = queues.computeIfAbsent(instance, i -> new InstanceQueue());
+		synchronized (queue) {
+			queue.queue.add(task);
+			if (queue.draining || queue.drainScheduled) return;
+			queue.draining = true;
+		}
+		drain(instance, queue);
+	}
+	
+	/**
+	 * Gets the amount of explosion tasks waiting in the queue of the instance, including one that is partially done.
+	 *
+	 * @param instance the instance
+	 * @return the queue depth
+	 */
+	public int getQueueDepth(@NotNull Instance instance) {
+		InstanceQueue queue = queues.get(instance);
+		if (queue == null) return 0;
+		synchronized (queue) {
+			return queue.queue.size();
+		}
+	}
+	
+	/**
+	 * Gets the total amount of explosion tasks waiting in the queues of all instances.
+	 *
+	 * @return the total queue depth
+	 */
+	public int getTotalQueueDepth() {
+		int depth = 0;
+		for (InstanceQueue queue : queues.values()) {
+			synchronized (queue) {
+				depth += queue.queue.size();
+			}
+		}
+		return depth;
+	}
+	
+	/**
+	 * Gets the time spent on explosions in the most recent tick of the instance in which explosions were handled.
+	 *
+	 * @param instance the instance
+	 * @return the time used
+	 */
+	public @NotNull Duration getTickTimeUsed(@NotNull Instance instance) {
+		InstanceQueue queue = queues.get(instance);
+		if (queue == null) return Duration.ZERO;
+		synchronized (queue) {
+			return Duration.ofNanos(queue.usedNanos);
+		}
+	}
+	
+	public @NotNull Duration getBudget() {
+		return Duration.ofNanos(budgetNanos);
+	}
+	
+	/**
+	 * Runs the tasks of the queue until it is empty or the budget of this tick has been used up.
+	 * The caller must have set {@link InstanceQueue#draining}, tasks run outside of the lock.
+	 */
+	private void drain(Instance instance, InstanceQueue queue) {
+		long tick = instance.getWorldAge();
+		long start = System.nanoTime();
+		long deadline;
+		synchronized (queue) {
+			if (queue.tick != tick) {
+				queue.tick = tick;
+				queue.usedNanos = 0;
+			}
+			deadline = start + budgetNanos - queue.usedNanos;
+		}
+		
+		while (System.nanoTime() - deadline < 0) {
+			Task task;
+			synchronized (queue) {
+				task = queue.queue.peek();
+			}
+			if (task == null) break;
+			
+			boolean finished;
+			try {
+				finished = task.run(deadline);
+			} catch (Throwable throwable) {
+				// Drop the task, so that it does not fail again every tick
+				MinecraftServer.getExceptionManager().handleException(throwable);
+				finished = true;
+			}
+			if (!finished) break;
+			synchronized (queue) {
+				queue.queue.poll();
+			}
+		}
+		
+		synchronized (queue) {
+			queue.usedNanos += System.nanoTime() - start;
+			queue.draining = false;
+			
+			// The queue is kept when it is empty, so the budget used this tick still applies to later submits
+			if (!queue.queue.isEmpty() && !queue.drainScheduled) {
+				queue.drainScheduled = true;
+				instance.scheduleNextTick(tickInstance -> {
+					synchronized (queue) {
+						queue.drainScheduled = false;
+						if (queue.draining || queue.queue.isEmpty()) return;
+						queue.draining = true;
+					}
+					drain(tickInstance, queue);
+				});
+			}
+		}
+	}
+	
+	private static final class InstanceQueue {
+		private final Queue<Task> queue = new ArrayDeque<>();
+		private long tick = -1;
+		private long usedNanos;
+		private boolean drainScheduled;
+		private boolean draining;
+	}
+}
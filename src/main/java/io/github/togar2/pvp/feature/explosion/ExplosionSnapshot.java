@@ -0,0 +1,100 @@
+package io.github.togar2.pvp.feature.explosion;
+
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.instance.palette.Palette;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A copy of the block palettes of the chunk sections around an explosion,
+ * which can be read from other threads while the instance keeps ticking.
+ * <p>
+ * Only block states are copied, so blocks returned by this getter do not have handlers or nbt.
+ * Blocks outside the snapshot or outside the height of the world are returned as air.
+ * Blocks in chunks which were not loaded are returned as barriers, so they stop the rays like the real blocks could.
+ */
+public final class ExplosionSnapshot implements Block.Getter {
+	private final int minSectionX, minSectionY, minSectionZ;
+	private final int sizeX, sizeY, sizeZ;
+	private final Palette[] palettes;
+	private final boolean[] loaded;
+	
+	private ExplosionSnapshot(int minSectionX, int minSectionY, int minSectionZ,
+	                          int sizeX, int sizeY, int sizeZ) {
+		this.minSectionX = minSectionX;
+		this.minSectionY = minSectionY;
+		this.minSectionZ = minSectionZ;
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		this.palettes = new Palette[sizeX * sizeY * sizeZ];
+		this.loaded = new boolean[sizeX * sizeZ];
+	}
+	
+	/**
+	 * Copies the sections containing the blocks within {@code radius} of the center.
+	 * Every chunk is copied while holding its lock, so the sections of a chunk are copied in a consistent state.
+	 *
+	 * @param instance the instance to copy from
+	 * @param centerX the x coordinate of the center
+	 * @param centerY the y coordinate of the center
+	 * @param centerZ the z coordinate of the center
+	 * @param radius the radius around the center to copy
+	 * @return the snapshot
+	 */
+	public static @NotNull ExplosionSnapshot capture(Instance instance, double centerX, double centerY, double centerZ,
+	                                                  double radius) {
+		int minSectionX = (int) Math.floor(centerX - radius) >> 4;
+		int minSectionY = (int) Math.floor(centerY - radius) >> 4;
+		int minSectionZ = (int) Math.floor(centerZ - radius) >> 4;
+		int maxSectionX = (int) Math.floor(centerX + radius) >> 4;
+		int maxSectionY = (int) Math.floor(centerY + radius) >> 4;
+		int maxSectionZ = (int) Math.floor(centerZ + radius) >> 4;
+		
+		ExplosionSnapshot snapshot = new ExplosionSnapshot(
+				minSectionX, minSectionY, minSectionZ,
+				maxSectionX - minSectionX + 1,
+				maxSectionY - minSectionY + 1,
+				maxSectionZ - minSectionZ + 1
+		);
+		
+		for (int sectionX = minSectionX; sectionX <= maxSectionX; sectionX++) {
+			for (int sectionZ = minSectionZ; sectionZ <= maxSectionZ; sectionZ++) {
+				Chunk chunk = instance.getChunk(sectionX, sectionZ);
+				if (chunk == null) continue;
+				snapshot.loaded[(sectionX - minSectionX) * snapshot.sizeZ + (sectionZ - minSectionZ)] = true;
+				
+				int fromY = Math.max(minSectionY, chunk.getMinSection());
+				int toY = Math.min(maxSectionY, chunk.getMaxSection() - 1);
+				synchronized (chunk) {
+					for (int sectionY = fromY; sectionY <= toY; sectionY++) {
+						snapshot.palettes[snapshot.index(sectionX, sectionY, sectionZ)] =
+								chunk.getSection(sectionY).blockPalette().clone();
+					}
+				}
+			}
+		}
+		
+		return snapshot;
+	}
+	
+	@Override
+	public @NotNull Block getBlock(int x, int y, int z, @NotNull Condition condition) {
+		int sectionX = (x >> 4) - minSectionX;
+		int sectionY = (y >> 4) - minSectionY;
+		int sectionZ = (z >> 4) - minSectionZ;
+		if (sectionX < 0 || sectionX >= sizeX || sectionY < 0 || sectionY >= sizeY || sectionZ < 0 || sectionZ >= sizeZ)
+			return Block.AIR;
+		
+		Palette palette = palettes[(sectionX * sizeY + sectionY) * sizeZ + sectionZ];
+		if (palette == null) return loaded[sectionX * sizeZ + sectionZ] ? Block.AIR : Block.BARRIER;
+		
+		Block block = Block.fromStateId((short) palette.get(x & 15, y & 15, z & 15));
+		return block == null ? Block.AIR : block;
+	}
+	
+	private int index(int sectionX, int sectionY, int sectionZ) {
+		return ((sectionX - minSectionX) * sizeY + (sectionY - minSectionY)) * sizeZ + (sectionZ - minSectionZ);
+	}
+}
@@ -0,0 +1,138 @@
+package io.github.togar2.pvp.feature.explosion;
+
+import io.github.togar2.pvp.entity.projectile.SleepingProjectiles;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.network.packet.server.play.MultiBlockChangePacket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects block changes grouped per chunk section, and applies them with one lock of the chunk
+ * and one {@link MultiBlockChangePacket} per section.
+ * <p>
+ * Blocks are set directly in the chunk, so block placement rules and updates of neighbouring blocks do not run.
+ * Changes which replace or place a block with a {@link net.minestom.server.instance.block.BlockHandler}
+ * are applied through {@link Instance#setBlock(int, int, int, Block)} instead, so the handler is notified.
+ */
+public final class SectionBlockBatch {
+	private final Long2ObjectLinkedOpenHashMap<Section> sections = new Long2ObjectLinkedOpenHashMap<>();
+	
+	public void setBlock(int x, int y, int z, Block block) {
+		long key = VanillaExplosionSupplier.pack(x >> 4, y >> 4, z >> 4);
+		Section section = sections.get(key);
+		if (section == null) {
+			section = new Section(x >> 4, y >> 4, z >> 4);
+			sections.put(key, section);
+		}
+		
+		section.positions.add(VanillaExplosionSupplier.pack(x, y, z));
+		section.blocks.add(block);
+	}
+	
+	/**
+	 * Applies the changes to the instance and sends them to the viewers of the chunks.
+	 * Must be called from the thread ticking the instance. Changes in unloaded chunks are ignored.
+	 *
+	 * @param instance the instance to apply the changes to
+	 */
+	public void apply(Instance instance) {
+		apply(instance, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Applies the changes to the instance section by section, until the deadline has passed.
+	 * Must be called from the thread ticking the instance. Changes in unloaded chunks are ignored.
+	 *
+	 * @param instance the instance to apply the changes to
+	 * @param deadline the {@link System#nanoTime()} after which no more sections are applied
+	 * @return true if all changes have been applied, false if some sections are left
+	 */
+	public boolean apply(Instance instance, long deadline) {
+		SleepingProjectiles sleepingProjectiles = SleepingProjectiles.get(instance);
+		ObjectIterator<Section> iterator = sections.values().iterator();
+		while (iterator.hasNext()) {
+			if (System.nanoTime() >= deadline) return false;
+			
+			Section section = iterator.next();
+			iterator.remove();
+			
+			Chunk chunk = instance.getChunk(section.chunkX, section.chunkZ);
+			if (chunk == null) continue;
+			
+			int size = section.positions.size();
+			long[] records = new long[size];
+			int recordCount = 0;
+			IntArrayList handled = null;
+			synchronized (chunk) {
+				for (int i = 0; i < size; i++) {
+					long packed = section.positions.getLong(i);
+					int x = VanillaExplosionSupplier.unpackX(packed);
+					int y = VanillaExplosionSupplier.unpackY(packed);
+					int z = VanillaExplosionSupplier.unpackZ(packed);
+					Block block = section.blocks.get(i);
+					
+					if (block.handler() != null || chunk.getBlock(x, y, z).handler() != null) {
+						if (handled == null) handled = new IntArrayList();
+						handled.add(i);
+						continue;
+					}
+					
+					chunk.setBlock(x, y, z, block);
+					records[recordCount++] = (long) block.stateId() << 12 | (long) (x & 15) << 8 | (long) (z & 15) << 4 | (y & 15);
+				}
+			}
+			
+			if (recordCount > 0) chunk.sendPacketToViewers(new MultiBlockChangePacket(
+					section.chunkX, section.sectionY, section.chunkZ,
+					recordCount == size ? records : Arrays.copyOf(records, recordCount)
+			));
+			
+			// Blocks with handlers are set outside of the chunk lock, since the handlers can access other blocks
+			if (handled != null) {
+				for (int i = 0; i < handled.size(); i++) {
+					int index = handled.getInt(i);
+					long packed = section.positions.getLong(index);
+					instance.setBlock(
+							VanillaExplosionSupplier.unpackX(packed),
+							VanillaExplosionSupplier.unpackY(packed),
+							VanillaExplosionSupplier.unpackZ(packed),
+							section.blocks.get(index)
+					);
+				}
+			}
+			
+			if (sleepingProjectiles != null) {
+				for (int i = 0; i < size; i++) {
+					long packed = section.positions.getLong(i);
+					sleepingProjectiles.wake(
+							VanillaExplosionSupplier.unpackX(packed),
+							VanillaExplosionSupplier.unpackY(packed),
+							VanillaExplosionSupplier.unpackZ(packed)
+					);
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	private static final class Section {
+		private final int chunkX, sectionY, chunkZ;
+		private final LongArrayList positions = new LongArrayList();
+		private final List<Block> blocks = new ArrayList<>();
+		
+		private Section(int chunkX, int sectionY, int chunkZ) {
+			this.chunkX = chunkX;
+			this.sectionY = sectionY;
+			this.chunkZ = chunkZ;
+		}
+	}
+}
@@ -24,17 +24,71 @@ public class VanillaExplosionFeature implements ExplosionFeature {
 			FeatureType.ENCHANTMENT
 	);
 	
+	/**
+	 * Variant of {@link #DEFINED} which casts the explosion rays on worker threads,
+	 * see {@link VanillaExplosionFeature#VanillaExplosionFeature(FeatureConfiguration, boolean)}.
+	 */
+	public static final DefinedFeature<VanillaExplosionFeature> ASYNC = new DefinedFeature<>(
+			FeatureType.EXPLOSION, configuration -> new VanillaExplosionFeature(configuration, true),
+			FeatureType.ENCHANTMENT
+	);
+	
+	/**
+	 * Variant of {@link #DEFINED} which merges primed TNT in the same block,
+	 * see {@link VanillaExplosionFeature#VanillaExplosionFeature(FeatureConfiguration, boolean, boolean)}.
+	 */
+	public static final DefinedFeature<VanillaExplosionFeature> MERGING = new DefinedFeature<>(
+			FeatureType.EXPLOSION, configuration -> new VanillaExplosionFeature(configuration, false, true),
+			FeatureType.ENCHANTMENT
+	);
+	
 	private final FeatureConfiguration configuration;
+	private final boolean async;
+	private final boolean mergeTnt;
 	
 	private VanillaExplosionSupplier explosionSupplier;
 	
 	public VanillaExplosionFeature(FeatureConfiguration configuration) {
+		this(configuration, false);
+	}
+	
+	/**
+	 * Creates a new explosion feature.
+	 * <p>
+	 * If {@code async} is true, the explosion rays are cast in parallel on the common {@link java.util.concurrent.ForkJoinPool},
+	 * against a copy of the chunk sections around the explosion. The destroyed blocks, the {@link io.github.togar2.pvp.events.ExplosionEvent},
+	 * damage and knockback are applied on the next tick of the instance, so the explosion happens one tick later than usual.
+	 * Changes made to the blocks in the meantime are not seen by the rays.
+	 *
+	 * @param configuration the feature configuration
+	 * @param async whether to cast the explosion rays asynchronously
+	 */
+	public VanillaExplosionFeature(FeatureConfiguration configuration, boolean async) {
+		this(configuration, async, false);
+	}
+	
+	/**
+	 * Creates a new explosion feature.
+	 * <p>
+	 * If {@code mergeTnt} is true, TNT primed by this feature merges with other primed TNT in the same block with the same fuse,
+	 * and the merged TNT explodes as one explosion which destroys the same blocks as the separate explosions would have.
+	 * Entities are damaged once and receive the knockback of all merged explosions.
+	 * This is meant for servers with stacked TNT cannons.
+	 *
+	 * @param configuration the feature configuration
+	 * @param async whether to cast the explosion rays asynchronously,
+	 *              see {@link VanillaExplosionFeature#VanillaExplosionFeature(FeatureConfiguration, boolean)}
+	 * @param mergeTnt whether to merge primed TNT in the same block
+	 */
+	public VanillaExplosionFeature(FeatureConfiguration configuration, boolean async, boolean mergeTnt) {
 		this.configuration = configuration;
+		this.async = async;
+		this.mergeTnt = mergeTnt;
 	}
 	
 	@Override
 	public void initDependencies() {
-		this.explosionSupplier = new VanillaExplosionSupplier(this, configuration.get(FeatureType.ENCHANTMENT));
+		this.explosionSupplier = new VanillaExplosionSupplier(this, configuration.get(FeatureType.ENCHANTMENT), async);
 	}
 	
 	@Override
@@ -46,7 +100,7 @@ public class VanillaExplosionFeature implements ExplosionFeature {
 	public void primeExplosive(Instance instance, Point blockPosition, @NotNull IgnitionCause cause, int fuse) {
 		ExplosivePrimeEvent event = new ExplosivePrimeEvent(instance, blockPosition, cause, fuse);
 		EventDispatcher.callCancellable(event, () -> {
-			TntEntity entity = new TntEntity(cause.causingEntity());
+			TntEntity entity = new TntEntity(cause.causingEntity(), mergeTnt);
 			entity.setFuse(event.getFuse());
 			entity.setInstance(instance, blockPosition.add(0.5, 0, 0.5));
 			entity.getViewersAsAudience().playSound(Sound.sound(
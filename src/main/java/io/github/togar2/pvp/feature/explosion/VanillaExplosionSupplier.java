@@ -3,10 +3,19 @@ package io.github.togar2.pvp.feature.explosion;
 import io.github.togar2.pvp.events.ExplosionEvent;
 import io.github.togar2.pvp.feature.enchantment.EnchantmentFeature;
 import io.github.togar2.pvp.player.CombatPlayer;
+import io.github.togar2.pvp.utils.BlockStateTable;
+import io.github.togar2.pvp.utils.EntityUtil;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Reference2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Reference2DoubleOpenHashMap;
 import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.minestom.server.MinecraftServer;
 import net.minestom.server.ServerFlag;
 import net.minestom.server.collision.BoundingBox;
-import net.minestom.server.collision.CollisionUtils;
 import net.minestom.server.coordinate.Point;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.coordinate.Vec;
@@ -18,6 +27,7 @@ import net.minestom.server.entity.damage.Damage;
 import net.minestom.server.entity.damage.DamageType;
 import net.minestom.server.event.EventDispatcher;
 import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.EntityTracker;
 import net.minestom.server.instance.Explosion;
 import net.minestom.server.instance.ExplosionSupplier;
 import net.minestom.server.instance.Instance;
@@ -28,77 +38,131 @@ import net.minestom.server.sound.SoundEvent;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public final class VanillaExplosionSupplier implements ExplosionSupplier {
+	private static final double RAY_STEP = 0.30000001192092896D;
+	private static final int RAY_COUNT;
+	private static final double[] RAY_X, RAY_Y, RAY_Z;
+	private static final double[] RESISTANCE_BY_STATE =
+			BlockStateTable.ofDouble(state -> state.registry().explosionResistance());
+	
+	static {
+		// Rays go from the center to every block on the surface of a 16x16x16 cube
+		RAY_COUNT = 16 * 16 * 16 - 14 * 14 * 14;
+		RAY_X = new double[RAY_COUNT];
+		RAY_Y = new double[RAY_COUNT];
+		RAY_Z = new double[RAY_COUNT];
+		
+		int ray = 0;
+		for (int x = 0; x < 16; ++x) {
+			for (int y = 0; y < 16; ++y) {
+				for (int z = 0; z < 16; ++z) {
+					if (x == 0 || x == 15 || y == 0 || y == 15 || z == 0 || z == 15) {
+						double xLength = (float) x / 15.0F * 2.0F - 1.0F;
+						double yLength = (float) y / 15.0F * 2.0F - 1.0F;
+						double zLength = (float) z / 15.0F * 2.0F - 1.0F;
+						double length = Math.sqrt(xLength * xLength + yLength * yLength + zLength * zLength);
+						RAY_X[ray] = xLength / length;
+						RAY_Y[ray] = yLength / length;
+						RAY_Z[ray] = zLength / length;
+						ray++;
+					}
+				}
+			}
+		}
+	}
+	
+	private static final int RAYS_PER_TASK = 169;
+	
 	private final ExplosionFeature feature;
 	
 	private final EnchantmentFeature enchantmentFeature;
 	
-	VanillaExplosionSupplier(ExplosionFeature feature, EnchantmentFeature enchantmentFeature) {
+	private final boolean async;
+	
+	private volatile @Nullable ExplosionScheduler scheduler;
+	
+	VanillaExplosionSupplier(ExplosionFeature feature, EnchantmentFeature enchantmentFeature, boolean async) {
 		this.feature = feature;
 		this.enchantmentFeature = enchantmentFeature;
+		this.async = async;
+	}
+	
+	/**
+	 * Sets the scheduler which spreads the work of the explosions of this supplier over multiple ticks.
+	 * Without a scheduler, explosions are handled completely in the tick they happen in.
+	 *
+	 * @param scheduler the scheduler, or null to not use a scheduler
+	 */
+	public void setScheduler(@Nullable ExplosionScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+	
+	public @Nullable ExplosionScheduler getScheduler() {
+		return scheduler;
 	}
 	
 	@Override
 	public Explosion createExplosion(float centerX, float centerY, float centerZ,
 	                                 float strength, @Nullable CompoundBinaryTag additionalData) {
+		return createExplosion(centerX, centerY, centerZ, strength, additionalData, null);
+	}
+	
+	/**
+	 * Creates an explosion with a known causing entity, which does not have to be looked up by the uuid in the additional data.
+	 * The explosion only keeps a weak reference to the entity.
+	 * The explosion can be applied using {@link Explosion#apply(Instance)}, which is what {@link Instance#explode} does as well.
+	 *
+	 * @param centerX the x coordinate of the center
+	 * @param centerY the y coordinate of the center
+	 * @param centerZ the z coordinate of the center
+	 * @param strength the strength of the explosion
+	 * @param additionalData the additional data of the explosion
+	 * @param causingEntity the entity which caused the explosion, or null to use the uuid in the additional data
+	 * @return the explosion
+	 */
+	public Explosion createExplosion(float centerX, float centerY, float centerZ,
+	                                 float strength, @Nullable CompoundBinaryTag additionalData,
+	                                 @Nullable Entity causingEntity) {
 		return new Explosion(centerX, centerY, centerZ, strength) {
 			private final Map<Player, Vec> playerKnockback = new HashMap<>();
+			private @Nullable WeakReference<Entity> causingEntityReference =
+					causingEntity == null ? null : new WeakReference<>(causingEntity);
+			private boolean causingEntityResolved = causingEntity != null;
 			
 			@Override
 			protected List<Point> prepare(Instance instance) {
-				List<Point> blocks = new ArrayList<>();
-				ThreadLocalRandom random = ThreadLocalRandom.current();
-				
-				boolean breakBlocks = true;
+				Preparation preparation = new Preparation(instance, null, null);
+				preparation.run(Long.MAX_VALUE);
+				return preparation.blocks;
+			}
+			
+			/**
+			 * Gets the amount of explosions at this center which are handled together by this explosion,
+			 * for example when multiple primed TNT have been merged.
+			 */
+			private int count() {
+				if (additionalData != null && additionalData.keySet().contains("count"))
+					return Math.max(1, additionalData.getInt("count"));
+				return 1;
+			}
+			
+			private boolean breakBlocks() {
 				if (additionalData != null && additionalData.keySet().contains("breakBlocks"))
-					breakBlocks = additionalData.getBoolean("breakBlocks");
-				
-				if (breakBlocks) {
-					for (int x = 0; x < 16; ++x) {
-						for (int y = 0; y < 16; ++y) {
-							for (int z = 0; z < 16; ++z) {
-								if (x == 0 || x == 15 || y == 0 || y == 15 || z == 0 || z == 15) {
-									double xLength = (float) x / 15.0F * 2.0F - 1.0F;
-									double yLength = (float) y / 15.0F * 2.0F - 1.0F;
-									double zLength = (float) z / 15.0F * 2.0F - 1.0F;
-									double length = Math.sqrt(xLength * xLength + yLength * yLength + zLength * zLength);
-									xLength /= length;
-									yLength /= length;
-									zLength /= length;
-									double centerX = this.getCenterX();
-									double centerY = this.getCenterY();
-									double centerZ = this.getCenterZ();
-									
-									float strengthLeft = this.getStrength() * (0.7F + random.nextFloat() * 0.6F);
-									for (; strengthLeft > 0.0F; strengthLeft -= 0.225F) {
-										Vec position = new Vec(centerX, centerY, centerZ);
-										Block block = instance.getBlock(position);
-										
-										if (!block.isAir()) {
-											double explosionResistance = block.registry().explosionResistance();
-											strengthLeft -= (float) ((explosionResistance + 0.3F) * 0.3F);
-											
-											if (strengthLeft > 0.0F) {
-												Vec blockPosition = position.apply(Vec.Operator.FLOOR);
-												if (!blocks.contains(blockPosition)) {
-													blocks.add(blockPosition);
-												}
-											}
-										}
-										
-										centerX += xLength * 0.30000001192092896D;
-										centerY += yLength * 0.30000001192092896D;
-										centerZ += zLength * 0.30000001192092896D;
-									}
-								}
-							}
-						}
-					}
-				}
-				
+					return additionalData.getBoolean("breakBlocks");
+				return true;
+			}
+			
+			/**
+			 * Collects the entities within reach of the explosion.
+			 */
+			private List<Entity> collectEntities(Instance instance) {
 				double strength = this.getStrength() * 2.0F;
 				int minX_ = (int) Math.floor(this.getCenterX() - strength - 1.0D);
 				int maxX_ = (int) Math.floor(this.getCenterX() + strength + 1.0D);
@@ -123,96 +187,262 @@ public final class VanillaExplosionSupplier implements ExplosionSupplier {
 				Vec centerPoint = new Vec(getCenterX(), getCenterY(), getCenterZ());
 				
 				Vec src = centerPoint.sub(0, explosionBox.height() / 2, 0);
-				List<Entity> entities = new ArrayList<>(instance.getEntities().stream()
-						.filter(entity -> explosionBox.intersectEntity(src, entity))
-						.toList());
+				List<Entity> entities = new ArrayList<>();
+				EntityUtil.collectIntersecting(instance, explosionBox, src, EntityTracker.Target.ENTITIES, entities);
+				return entities;
+			}
+			
+			/**
+			 * Prepares this explosion in steps, so that a scheduler can spread the work over multiple ticks:
+			 * the rays are cast in batches, then the explosion event is called, then the entities are damaged one by one.
+			 */
+			private final class Preparation {
+				private final Instance instance;
+				private final @Nullable RayCast rays;
+				private final @Nullable Reference2DoubleMap<Entity> exposures;
+				private @Nullable LongLinkedOpenHashSet positions;
 				
-				boolean anchor = false;
-				if (additionalData != null && additionalData.keySet().contains("anchor")) {
-					anchor = additionalData.getBoolean("anchor");
-				}
+				private List<Point> blocks;
+				private List<Entity> entities;
+				private Damage damageObj;
+				private int nextEntity;
 				
-				Damage damageObj;
-				if (anchor) {
-					damageObj = new Damage(DamageType.BAD_RESPAWN_POINT, null, null, null, 0);
-				} else {
-					Entity causingEntity = getCausingEntity(instance);
-					damageObj = new Damage(DamageType.PLAYER_EXPLOSION, causingEntity, causingEntity, null, 0);
+				/**
+				 * @param positions the packed positions of the destroyed blocks if the rays have already been cast
+				 * @param exposures the exposures which have been computed beforehand, the exposure of entities
+				 *                  which are not in it is computed when they are damaged
+				 */
+				private Preparation(Instance instance, @Nullable LongLinkedOpenHashSet positions,
+				                    @Nullable Reference2DoubleMap<Entity> exposures) {
+					this.instance = instance;
+					this.positions = positions != null || breakBlocks() ? positions : new LongLinkedOpenHashSet();
+					this.rays = this.positions == null
+							? new RayCast(instance, getCenterX(), getCenterY(), getCenterZ(), getStrength(), count())
+							: null;
+					this.exposures = exposures;
 				}
 				
-				// Blocks and entities list may be modified during the event call
-				ExplosionEvent explosionEvent = new ExplosionEvent(instance, blocks, entities, damageObj);
-				EventDispatcher.call(explosionEvent);
-				if (explosionEvent.isCancelled()) return null;
-				damageObj = explosionEvent.getDamageObject();
+				/**
+				 * Continues preparing until it is done or the deadline has passed.
+				 * Once done, {@link #blocks} contains the blocks to destroy, or is null if the explosion event was cancelled.
+				 *
+				 * @param deadline the {@link System#nanoTime()} at which to stop
+				 * @return whether the preparation is done
+				 */
+				private boolean run(long deadline) {
+					if (positions == null) {
+						assert rays != null;
+						if (!rays.run(deadline)) return false;
+						positions = rays.getPositions();
+					}
+					
+					if (entities == null && !callEvent()) return true;
+					
+					double strength = getStrength() * 2.0F;
+					Vec centerPoint = new Vec(getCenterX(), getCenterY(), getCenterZ());
+					int count = count();
+					while (nextEntity < entities.size()) {
+						Entity entity = entities.get(nextEntity++);
+						// The entity might have been removed if the preparation took multiple ticks
+						if (entity.isRemoved() || entity.getInstance() != instance) continue;
+						damage(entity, centerPoint, strength, count, damageObj, exposures);
+						
+						if (nextEntity < entities.size() && System.nanoTime() - deadline >= 0) return false;
+					}
+					return true;
+				}
 				
-				for (Entity entity : entities) {
-					double currentStrength = entity.getPosition().distance(centerPoint) / strength;
-					if (currentStrength <= 1.0D) {
-						double dx = entity.getPosition().x() - this.getCenterX();
-						double dy = (entity.getEntityType() == EntityType.TNT ? entity.getPosition().y() :
-								entity.getPosition().y() + entity.getEyeHeight()) - this.getCenterY();
-						double dz = entity.getPosition().z() - this.getCenterZ();
-						double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
-						if (distance != 0.0D) {
-							dx /= distance;
-							dy /= distance;
-							dz /= distance;
-							double exposure = getExposure(centerPoint, entity);
-							currentStrength = (1.0D - currentStrength) * exposure;
-							damageObj.setAmount((float) ((currentStrength * currentStrength + currentStrength)
-									/ 2.0D * 7.0D * strength + 1.0D));
-							double knockback = currentStrength;
-							if (entity instanceof LivingEntity living) {
-								if (!living.damage(damageObj)) continue;
-								knockback = enchantmentFeature.getExplosionKnockback(living, currentStrength);
-							}
-							
-							Vec knockbackVec = new Vec(
-									dx * knockback,
-									dy * knockback,
-									dz * knockback
-							);
-							
-							int tps = ServerFlag.SERVER_TICKS_PER_SECOND;
-							if (entity instanceof Player player) {
-								if (!player.getGameMode().invulnerable() && !player.isFlying()) {
-									playerKnockback.put(player, knockbackVec);
-									
-									if (player instanceof CombatPlayer custom)
-										custom.setVelocityNoUpdate(velocity -> velocity.add(knockbackVec.mul(tps)));
-								}
-							} else {
-								entity.setVelocity(entity.getVelocity().add(knockbackVec.mul(tps)));
-							}
-						}
+				/**
+				 * Calls the explosion event.
+				 *
+				 * @return false if the event was cancelled
+				 */
+				private boolean callEvent() {
+					assert positions != null;
+					blocks = new ArrayList<>(positions.size());
+					LongIterator iterator = positions.iterator();
+					while (iterator.hasNext()) {
+						long packed = iterator.nextLong();
+						blocks.add(new Vec(unpackX(packed), unpackY(packed), unpackZ(packed)));
+					}
+					
+					entities = collectEntities(instance);
+					
+					boolean anchor = false;
+					if (additionalData != null && additionalData.keySet().contains("anchor")) {
+						anchor = additionalData.getBoolean("anchor");
+					}
+					
+					if (anchor) {
+						damageObj = new Damage(DamageType.BAD_RESPAWN_POINT, null, null, null, 0);
+					} else {
+						Entity causingEntity = getCausingEntity(instance);
+						damageObj = new Damage(DamageType.PLAYER_EXPLOSION, causingEntity, causingEntity, null, 0);
 					}
+					
+					// Blocks and entities list may be modified during the event call
+					ExplosionEvent explosionEvent = new ExplosionEvent(instance, blocks, entities, damageObj);
+					EventDispatcher.call(explosionEvent);
+					if (explosionEvent.isCancelled()) {
+						blocks = null;
+						return false;
+					}
+					damageObj = explosionEvent.getDamageObject();
+					return true;
+				}
+			}
+			
+			/**
+			 * Damages and pushes an entity.
+			 * Every explosion of the group pushes non-living entities. Living entities are only hit once:
+			 * the other explosions of the group would deal the same amount while the entity is invulnerable from the first hit,
+			 * so they would neither deal damage nor push it.
+			 */
+			private void damage(Entity entity, Vec centerPoint, double strength, int count, Damage damageObj,
+			                    @Nullable Reference2DoubleMap<Entity> exposures) {
+				double currentStrength = entity.getPosition().distance(centerPoint) / strength;
+				if (currentStrength > 1.0D) return;
+				
+				double dx = entity.getPosition().x() - this.getCenterX();
+				double dy = (entity.getEntityType() == EntityType.TNT ? entity.getPosition().y() :
+						entity.getPosition().y() + entity.getEyeHeight()) - this.getCenterY();
+				double dz = entity.getPosition().z() - this.getCenterZ();
+				double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+				if (distance == 0.0D) return;
+				
+				dx /= distance;
+				dy /= distance;
+				dz /= distance;
+				double exposure = exposures != null && exposures.containsKey(entity)
+						? exposures.getDouble(entity)
+						: getExposure(centerPoint, entity);
+				currentStrength = (1.0D - currentStrength) * exposure;
+				damageObj.setAmount((float) ((currentStrength * currentStrength + currentStrength)
+						/ 2.0D * 7.0D * strength + 1.0D));
+				double knockback = currentStrength;
+				int hits = count;
+				if (entity instanceof LivingEntity living) {
+					if (!living.damage(damageObj)) return;
+					hits = 1;
+					knockback = enchantmentFeature.getExplosionKnockback(living, currentStrength);
 				}
 				
-				return blocks;
+				Vec knockbackVec = new Vec(
+						dx * knockback,
+						dy * knockback,
+						dz * knockback
+				).mul(hits);
+				
+				int tps = ServerFlag.SERVER_TICKS_PER_SECOND;
+				if (entity instanceof Player player) {
+					if (!player.getGameMode().invulnerable() && !player.isFlying()) {
+						playerKnockback.put(player, knockbackVec);
+						
+						if (player instanceof CombatPlayer custom)
+							custom.setVelocityNoUpdate(velocity -> velocity.add(knockbackVec.mul(tps)));
+					}
+				} else {
+					entity.setVelocity(entity.getVelocity().add(knockbackVec.mul(tps)));
+				}
 			}
 			
 			@Override
 			public void apply(@NotNull Instance instance) {
-				List<Point> blocks = prepare(instance);
-				if (blocks == null) return; // Event was cancelled
-				byte[] records = new byte[3 * blocks.size()];
-				for (int i = 0; i < blocks.size(); i++) {
-					final var pos = blocks.get(i);
-					if (instance.getBlock(pos).compare(Block.TNT)) {
+				if (!async || !breakBlocks()) {
+					apply(instance, new Preparation(instance, null, null));
+					return;
+				}
+				
+				// Cast the rays, and trace the exposure of the entities which are in reach now,
+				// on worker threads against a copy of the surrounding sections,
+				// and continue with the result on the next tick of the instance.
+				// If this failed, the explosion is prepared on the tick thread instead
+				Vec center = new Vec(getCenterX(), getCenterY(), getCenterZ());
+				List<Entity> entities = collectEntities(instance);
+				Pos[] entityPositions = new Pos[entities.size()];
+				BoundingBox[] entityBoxes = new BoundingBox[entities.size()];
+				double radius = getMaxRayLength(getStrength());
+				for (int i = 0; i < entities.size(); i++) {
+					Entity entity = entities.get(i);
+					entityPositions[i] = entity.getPosition();
+					entityBoxes[i] = entity.getBoundingBox();
+					radius = Math.max(radius, getReach(center, entityPositions[i], entityBoxes[i]));
+				}
+				
+				ExplosionSnapshot snapshot = ExplosionSnapshot.capture(instance,
+						getCenterX(), getCenterY(), getCenterZ(), radius);
+				CompletableFuture<Reference2DoubleMap<Entity>> exposuresFuture = CompletableFuture.supplyAsync(() -> {
+					Reference2DoubleMap<Entity> exposures = new Reference2DoubleOpenHashMap<>(entities.size());
+					for (int i = 0; i < entities.size(); i++) {
+						exposures.put(entities.get(i),
+								ExplosionExposure.getExposure(snapshot, center, entityBoxes[i], entityPositions[i]));
+					}
+					return exposures;
+				}, ForkJoinPool.commonPool());
+				
+				castRaysAsync(snapshot, getCenterX(), getCenterY(), getCenterZ(), getStrength(), count())
+						.thenAcceptBoth(exposuresFuture, (positions, exposures) -> instance.scheduleNextTick(
+								tickInstance -> apply(tickInstance, new Preparation(tickInstance, positions, exposures))))
+						.exceptionally(throwable -> {
+							MinecraftServer.getExceptionManager().handleException(throwable);
+							instance.scheduleNextTick(tickInstance -> apply(tickInstance, new Preparation(tickInstance, null, null)));
+							return null;
+						});
+			}
+			
+			private void apply(Instance instance, Preparation preparation) {
+				ExplosionScheduler scheduler = VanillaExplosionSupplier.this.scheduler;
+				if (scheduler == null) {
+					preparation.run(Long.MAX_VALUE);
+					List<Point> blocks = preparation.blocks;
+					if (blocks == null) return; // Event was cancelled
+					SectionBlockBatch batch = destroyBlocks(instance, blocks);
+					batch.apply(instance);
+					finish(instance, blocks);
+					return;
+				}
+				
+				scheduler.submit(instance, new ExplosionScheduler.Task() {
+					private SectionBlockBatch batch;
+					
+					@Override
+					public boolean run(long deadline) {
+						if (batch == null) {
+							if (!preparation.run(deadline)) return false;
+							if (preparation.blocks == null) return true; // Event was cancelled
+							batch = destroyBlocks(instance, preparation.blocks);
+						}
+						
+						if (!batch.apply(instance, deadline)) return false;
+						finish(instance, preparation.blocks);
+						return true;
+					}
+				});
+			}
+			
+			/**
+			 * Primes the TNT in the destroyed blocks and collects the block changes.
+			 */
+			private SectionBlockBatch destroyBlocks(Instance instance, List<Point> blocks) {
+				if (!blocks.isEmpty()) ExplosionExposure.invalidate(instance);
+				SectionBlockBatch batch = new SectionBlockBatch();
+				for (Point pos : blocks) {
+					if (!instance.isChunkLoaded(pos)) continue;
+					if (instance.getBlock(pos, Block.Getter.Condition.TYPE).compare(Block.TNT)) {
 						Entity causingEntity = getCausingEntity(instance);
 						feature.primeExplosive(instance, pos, new ExplosionFeature.IgnitionCause.Explosion(causingEntity),
 								ThreadLocalRandom.current().nextInt(20) + 10);
 					}
-					instance.setBlock(pos, Block.AIR);
-					final byte x = (byte) (pos.x() - Math.floor(getCenterX()));
-					final byte y = (byte) (pos.y() - Math.floor(getCenterY()));
-					final byte z = (byte) (pos.z() - Math.floor(getCenterZ()));
-					records[i * 3] = x;
-					records[i * 3 + 1] = y;
-					records[i * 3 + 2] = z;
+					batch.setBlock(pos.blockX(), pos.blockY(), pos.blockZ(), Block.AIR);
 				}
 				
+				return batch;
+			}
+			
+			/**
+			 * Sends the explosion to the viewers and places fire, after all blocks have been destroyed.
+			 */
+			private void finish(Instance instance, List<Point> blocks) {
 				Chunk chunk = instance.getChunkAt(getCenterX(), getCenterZ());
 				if (chunk != null) {
 					for (Player player : chunk.getViewers()) {
@@ -225,14 +455,17 @@ public final class VanillaExplosionSupplier implements ExplosionSupplier {
 				if (additionalData != null && additionalData.keySet().contains("fire")) {
 					if (additionalData.getBoolean("fire")) {
 						ThreadLocalRandom random = ThreadLocalRandom.current();
+						SectionBlockBatch fireBatch = new SectionBlockBatch();
 						for (Point point : blocks) {
 							if (random.nextInt(3) != 0
+									|| !instance.isChunkLoaded(point)
 									|| !instance.getBlock(point).isAir()
 									|| !instance.getBlock(point.sub(0, 1, 0)).isSolid())
 								continue;
 							
-							instance.setBlock(point, Block.FIRE);
+							fireBatch.setBlock(point.blockX(), point.blockY(), point.blockZ(), Block.FIRE);
 						}
+						fireBatch.apply(instance);
 					}
 				}
 				
@@ -240,53 +473,293 @@ public final class VanillaExplosionSupplier implements ExplosionSupplier {
 			}
 			
 			private @Nullable Entity getCausingEntity(Instance instance) {
-				Entity causingEntity = null;
-				if (additionalData != null && additionalData.keySet().contains("causingEntity")) {
-					UUID causingUuid = UUID.fromString(additionalData.getString("causingEntity"));
-					causingEntity = instance.getEntities().stream()
-							.filter(entity -> entity.getUuid().equals(causingUuid))
-							.findAny().orElse(null);
+				if (!causingEntityResolved) {
+					// Only look up the uuid once per explosion
+					causingEntityResolved = true;
+					if (additionalData != null && additionalData.keySet().contains("causingEntity")) {
+						UUID causingUuid = UUID.fromString(additionalData.getString("causingEntity"));
+						Entity entity = instance.getEntityByUuid(causingUuid);
+						if (entity != null) causingEntityReference = new WeakReference<>(entity);
+					}
 				}
 				
-				return causingEntity;
+				Entity entity = causingEntityReference == null ? null : causingEntityReference.get();
+				if (entity == null || entity.isRemoved() || entity.getInstance() != instance) return null;
+				return entity;
 			}
 		};
 	}
 	
-	public static double getExposure(Point center, Entity entity) {
-		BoundingBox box = entity.getBoundingBox();
-		double xStep = 1 / (box.width() * 2 + 1);
-		double yStep = 1 / (box.height() * 2 + 1);
-		double zStep = 1 / (box.depth() * 2 + 1);
-		double g = (1 - Math.floor(1 / xStep) * xStep) / 2;
-		double h = (1 - Math.floor(1 / zStep) * zStep) / 2;
-		if (xStep < 0 || yStep < 0 || zStep < 0) return 0;
+	/**
+	 * Casts the explosion rays in parallel on the common {@link ForkJoinPool}.
+	 * The result is the same as {@link #castRays(Block.Getter, double, double, double, float)},
+	 * including the order of the positions.
+	 *
+	 * @param blockGetter the blocks to cast the rays through, which must be safe to read from other threads
+	 * @param centerX the x coordinate of the center
+	 * @param centerY the y coordinate of the center
+	 * @param centerZ the z coordinate of the center
+	 * @param strength the strength of the explosion
+	 * @return a future completing with the packed positions of the destroyed blocks
+	 */
+	public static CompletableFuture<LongLinkedOpenHashSet> castRaysAsync(Block.Getter blockGetter,
+	                                                                    double centerX, double centerY, double centerZ,
+	                                                                    float strength) {
+		List<CompletableFuture<LongArrayList>> tasks = new ArrayList<>();
+		for (int from = 0; from < RAY_COUNT; from += RAYS_PER_TASK) {
+			int fromRay = from;
+			int toRay = Math.min(from + RAYS_PER_TASK, RAY_COUNT);
+			tasks.add(CompletableFuture.supplyAsync(() -> {
+				LongArrayList positions = new LongArrayList();
+				castRays(blockGetter, centerX, centerY, centerZ, strength, fromRay, toRay, positions, ThreadLocalRandom.current());
+				return positions;
+			}, ForkJoinPool.commonPool()));
+		}
+		
+		return CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+			LongLinkedOpenHashSet positions = new LongLinkedOpenHashSet();
+			for (CompletableFuture<LongArrayList> task : tasks) {
+				positions.addAll(task.join());
+			}
+			return positions;
+		});
+	}
+	
+	/**
+	 * Casts the rays of {@code count} explosions at the same center, one after another, asynchronously.
+	 * Every explosion sees the blocks destroyed by the ones before it as air,
+	 * so the result is the same as {@link #castRays(Block.Getter, double, double, double, float, int)}.
+	 *
+	 * @param blockGetter the blocks to cast the rays through, which must be safe to read from other threads
+	 * @param centerX the x coordinate of the center
+	 * @param centerY the y coordinate of the center
+	 * @param centerZ the z coordinate of the center
+	 * @param strength the strength of every explosion
+	 * @param count the amount of explosions
+	 * @return a future completing with the packed positions of the destroyed blocks
+	 */
+	public static CompletableFuture<LongLinkedOpenHashSet> castRaysAsync(Block.Getter blockGetter,
+	                                                                    double centerX, double centerY, double centerZ,
+	                                                                    float strength, int count) {
+		CompletableFuture<LongLinkedOpenHashSet> future = castRaysAsync(blockGetter, centerX, centerY, centerZ, strength);
+		for (int i = 1; i < count; i++) {
+			future = future.thenCompose(positions ->
+					castRaysAsync(withDestroyed(blockGetter, positions), centerX, centerY, centerZ, strength)
+							.thenApply(next -> {
+								positions.addAll(next);
+								return positions;
+							}));
+		}
+		return future;
+	}
+	
+	/**
+	 * Gets the distance from the center to the furthest corner of a bounding box,
+	 * plus a block for the blocks around the exposure rays ending there.
+	 */
+	private static double getReach(Point center, Point position, BoundingBox box) {
+		double dx = Math.max(Math.abs(position.x() + box.minX() - center.x()), Math.abs(position.x() + box.maxX() - center.x()));
+		double dy = Math.max(Math.abs(position.y() + box.minY() - center.y()), Math.abs(position.y() + box.maxY() - center.y()));
+		double dz = Math.max(Math.abs(position.z() + box.minZ() - center.z()), Math.abs(position.z() + box.maxZ() - center.z()));
+		return Math.sqrt(dx * dx + dy * dy + dz * dz) + 1;
+	}
+	
+	/**
+	 * Gets the furthest distance from the center at which an explosion ray can destroy a block.
+	 *
+	 * @param strength the strength of the explosion
+	 * @return the maximum ray length
+	 */
+	public static double getMaxRayLength(float strength) {
+		return Math.ceil(strength * 1.3 / 0.225) * RAY_STEP + 1;
+	}
+	
+	/**
+	 * Casts the explosion rays from the center and collects the positions of the blocks they destroy.
+	 * The positions are packed into longs, see {@link #pack(int, int, int)}, and are kept in the order they were hit.
+	 *
+	 * @param blockGetter the blocks to cast the rays through, usually the instance of the explosion
+	 * @param centerX the x coordinate of the center
+	 * @param centerY the y coordinate of the center
+	 * @param centerZ the z coordinate of the center
+	 * @param strength the strength of the explosion
+	 * @return the packed positions of the destroyed blocks
+	 */
+	public static LongLinkedOpenHashSet castRays(Block.Getter blockGetter, double centerX, double centerY, double centerZ,
+	                                             float strength) {
+		return castRays(blockGetter, centerX, centerY, centerZ, strength, 1, ThreadLocalRandom.current());
+	}
+	
+	/**
+	 * Casts the rays of {@code count} explosions at the same center, one after another.
+	 * Every explosion sees the blocks destroyed by the ones before it as air,
+	 * so the destroyed blocks are the same as when the explosions would have been applied one by one.
+	 *
+	 * @param blockGetter the blocks to cast the rays through, usually the instance of the explosion
+	 * @param centerX the x coordinate of the center
+	 * @param centerY the y coordinate of the center
+	 * @param centerZ the z coordinate of the center
+	 * @param strength the strength of every explosion
+	 * @param count the amount of explosions
+	 * @return the packed positions of the destroyed blocks
+	 */
+	public static LongLinkedOpenHashSet castRays(Block.Getter blockGetter, double centerX, double centerY, double centerZ,
+	                                             float strength, int count) {
+		return castRays(blockGetter, centerX, centerY, centerZ, strength, count, ThreadLocalRandom.current());
+	}
+	
+	static LongLinkedOpenHashSet castRays(Block.Getter blockGetter, double centerX, double centerY, double centerZ,
+	                                      float strength, int count, RandomGenerator random) {
+		RayCast rays = new RayCast(blockGetter, centerX, centerY, centerZ, strength, count, random);
+		rays.run(Long.MAX_VALUE);
+		return rays.getPositions();
+	}
+	
+	/**
+	 * Casts the rays of a group of explosions in batches of {@link #RAYS_PER_TASK} rays,
+	 * so that it can be continued in a later tick when a deadline has passed.
+	 * Every explosion of the group after the first sees the blocks destroyed by the previous ones as air.
+	 */
+	private static final class RayCast {
+		private final Block.Getter blockGetter;
+		private final double centerX, centerY, centerZ;
+		private final float strength;
+		private final int count;
+		private final RandomGenerator random;
+		
+		private final LongLinkedOpenHashSet positions = new LongLinkedOpenHashSet();
+		private Block.Getter passGetter;
+		private LongCollection passPositions;
+		private int pass;
+		private int ray;
+		
+		private RayCast(Block.Getter blockGetter, double centerX, double centerY, double centerZ,
+		                float strength, int count, RandomGenerator random) {
+			this.blockGetter = blockGetter;
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.centerZ = centerZ;
+			this.strength = strength;
+			this.count = count;
+			this.random = random;
+			this.passGetter = blockGetter;
+			this.passPositions = positions;
+		}
 		
-		int exposedCount = 0;
-		int rayCount = 0;
-		double dx = 0;
-		while (dx <= 1) {
-			double dy = 0;
-			while (dy <= 1) {
-				double dz = 0;
-				while (dz <= 1) {
-					double rayX = box.minX() + dx * box.width();
-					double rayY = box.minY() + dy * box.height();
-					double rayZ = box.minZ() + dz * box.depth();
-					Point point = new Vec(rayX + g, rayY, rayZ + h).add(entity.getPosition());
-					if (noBlocking(entity.getInstance(), point, center)) exposedCount++;
-					rayCount++;
-					dz += zStep;
+		private RayCast(Block.Getter blockGetter, double centerX, double centerY, double centerZ,
+		                float strength, int count) {
+			this(blockGetter, centerX, centerY, centerZ, strength, count, ThreadLocalRandom.current());
+		}
+		
+		/**
+		 * Casts rays until all of them have been cast or the deadline has passed.
+		 *
+		 * @param deadline the {@link System#nanoTime()} at which to stop
+		 * @return whether all rays have been cast
+		 */
+		private boolean run(long deadline) {
+			while (pass < count) {
+				int toRay = Math.min(ray + RAYS_PER_TASK, RAY_COUNT);
+				castRays(passGetter, centerX, centerY, centerZ, strength, ray, toRay, passPositions, random);
+				ray = toRay;
+				
+				if (ray == RAY_COUNT) {
+					if (passPositions != positions) positions.addAll(passPositions);
+					ray = 0;
+					if (++pass == count) break;
+					passGetter = withDestroyed(blockGetter, positions);
+					passPositions = new LongArrayList();
 				}
-				dy += yStep;
+				
+				if (System.nanoTime() - deadline >= 0) return false;
 			}
-			dx += xStep;
+			return true;
 		}
 		
-		return exposedCount / (double) rayCount;
+		private LongLinkedOpenHashSet getPositions() {
+			return positions;
+		}
+	}
+	
+	private static Block.Getter withDestroyed(Block.Getter blockGetter, LongSet destroyed) {
+		return (x, y, z, condition) -> destroyed.contains(pack(x, y, z)) ? Block.AIR : blockGetter.getBlock(x, y, z, condition);
+	}
+	
+	private static void castRays(Block.Getter blockGetter, double centerX, double centerY, double centerZ,
+	                             float strength, int fromRay, int toRay, LongCollection positions,
+	                             RandomGenerator random) {
+		for (int ray = fromRay; ray < toRay; ray++) {
+			double xStep = RAY_X[ray] * RAY_STEP;
+			double yStep = RAY_Y[ray] * RAY_STEP;
+			double zStep = RAY_Z[ray] * RAY_STEP;
+			double x = centerX;
+			double y = centerY;
+			double z = centerZ;
+			
+			// The ray advances less than a block per step, so the block lookup is reused while it stays in the same block
+			int lastX = Integer.MIN_VALUE, lastY = Integer.MIN_VALUE, lastZ = Integer.MIN_VALUE;
+			Block block = Block.AIR;
+			
+			float strengthLeft = strength * (0.7F + random.nextFloat() * 0.6F);
+			for (; strengthLeft > 0.0F; strengthLeft -= 0.225F) {
+				int blockX = (int) Math.floor(x);
+				int blockY = (int) Math.floor(y);
+				int blockZ = (int) Math.floor(z);
+				if (blockX != lastX || blockY != lastY || blockZ != lastZ) {
+					block = blockGetter.getBlock(blockX, blockY, blockZ);
+					lastX = blockX;
+					lastY = blockY;
+					lastZ = blockZ;
+				}
+				
+				if (!block.isAir()) {
+					strengthLeft -= (float) ((getExplosionResistance(block) + 0.3F) * 0.3F);
+					if (strengthLeft > 0.0F) positions.add(pack(blockX, blockY, blockZ));
+				}
+				
+				x += xStep;
+				y += yStep;
+				z += zStep;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the explosion resistance of a block, cached by block state id.
+	 *
+	 * @param block the block
+	 * @return the explosion resistance
+	 */
+	public static double getExplosionResistance(Block block) {
+		int stateId = block.stateId();
+		if (stateId >= 0 && stateId < RESISTANCE_BY_STATE.length) return RESISTANCE_BY_STATE[stateId];
+		return block.registry().explosionResistance();
+	}
+	
+	public static long pack(int x, int y, int z) {
+		return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | ((long) y & 0xFFF);
+	}
+	
+	public static int unpackX(long packed) {
+		return (int) (packed >> 38);
+	}
+	
+	public static int unpackY(long packed) {
+		return (int) (packed << 52 >> 52);
+	}
+	
+	public static int unpackZ(long packed) {
+		return (int) (packed << 26 >> 38);
+	}
+	
+	/**
+	 * @see ExplosionExposure#getExposure(Point, Entity)
+	 */
+	public static double getExposure(Point center, Entity entity) {
+		return ExplosionExposure.getExposure(center, entity);
 	}
 	
 	public static boolean noBlocking(Instance instance, Point start, Point end) {
-		return CollisionUtils.isLineOfSightReachingShape(instance, null, start, end, new BoundingBox(1, 1, 1));
+		return ExplosionExposure.reaches(instance, start, end);
 	}
 }
@@ -6,8 +6,9 @@ import io.github.togar2.pvp.feature.RegistrableFeature;
 import io.github.togar2.pvp.feature.config.DefinedFeature;
 import io.github.togar2.pvp.feature.config.FeatureConfiguration;
 import io.github.togar2.pvp.feature.state.PlayerStateFeature;
+import io.github.togar2.pvp.utils.CombatStateStore;
+import io.github.togar2.pvp.utils.CombatTagIndex;
 import net.kyori.adventure.sound.Sound;
-import net.minestom.server.MinecraftServer;
 import net.minestom.server.coordinate.Point;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.coordinate.Vec;
@@ -19,7 +20,6 @@ import net.minestom.server.event.EventNode;
 import net.minestom.server.event.entity.EntityTickEvent;
 import net.minestom.server.event.player.PlayerMoveEvent;
 import net.minestom.server.event.trait.EntityInstanceEvent;
-import net.minestom.server.gamedata.tags.TagManager;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.instance.block.Block;
 import net.minestom.server.network.packet.server.play.ParticlePacket;
@@ -38,7 +38,6 @@ public class VanillaFallFeature implements FallFeature, CombatFeature, Registrab
 			FeatureType.PLAYER_STATE
 	);
 	
-	public static final Tag<Double> FALL_DISTANCE = Tag.Transient("fallDistance");
 	public static final Tag<Boolean> EXTRA_FALL_PARTICLES = Tag.Transient("extraFallParticles");
 	
 	private final FeatureConfiguration configuration;
@@ -55,7 +54,7 @@ public class VanillaFallFeature implements FallFeature, CombatFeature, Registrab
 	}
 	
 	public static void initPlayer(Player player, boolean firstInit) {
-		player.setTag(FALL_DISTANCE, 0.0);
+		CombatStateStore.setFallDistance(player, 0.0);
 	}
 	
 	@Override
@@ -72,7 +71,7 @@ public class VanillaFallFeature implements FallFeature, CombatFeature, Registrab
 		// For players, handle fall damage on move event
 		node.addListener(PlayerMoveEvent.class, event -> {
 			Player player = event.getPlayer();
-			if (playerStateFeature.isClimbing(player)) player.setTag(FALL_DISTANCE, 0.0);
+			if (playerStateFeature.isClimbing(player)) CombatStateStore.setFallDistance(player, 0.0);
 			
 			handleFallDamage(
 					player, player.getPosition(),
@@ -88,17 +87,17 @@ public class VanillaFallFeature implements FallFeature, CombatFeature, Registrab
 		if ((entity instanceof Player player && player.isFlying())
 				|| entity.hasEffect(PotionEffect.LEVITATION)
 				|| entity.hasEffect(PotionEffect.SLOW_FALLING) || dy > 0) {
-			entity.setTag(FALL_DISTANCE, 0.0);
+			CombatStateStore.setFallDistance(entity, 0.0);
 			return;
 		}
 		
 		if (entity.isFlyingWithElytra() && entity.getVelocity().y() > -0.5) {
-			entity.setTag(FALL_DISTANCE, 1.0);
+			CombatStateStore.setFallDistance(entity, 1.0);
 			return;
 		}
 		
 		if (!onGround) {
-			if (dy < 0) entity.setTag(FALL_DISTANCE, fallDistance - dy);
+			if (dy < 0) CombatStateStore.setFallDistance(entity, fallDistance - dy);
 			return;
 		}
 		
@@ -136,7 +135,7 @@ public class VanillaFallFeature implements FallFeature, CombatFeature, Registrab
 			}
 		}
 		
-		entity.setTag(FALL_DISTANCE, 0.0);
+		CombatStateStore.setFallDistance(entity, 0.0);
 		
 		if (entity instanceof Player player && player.getGameMode().invulnerable()) return;
 		int damage = getFallDamage(entity, fallDistance);
@@ -166,12 +165,12 @@ public class VanillaFallFeature implements FallFeature, CombatFeature, Registrab
 	
 	@Override
 	public double getFallDistance(LivingEntity entity) {
-		return entity.hasTag(FALL_DISTANCE) ? entity.getTag(FALL_DISTANCE) : 0.0;
+		return CombatStateStore.getFallDistance(entity);
 	}
 	
 	@Override
 	public void resetFallDistance(LivingEntity entity) {
-		entity.setTag(FALL_DISTANCE, 0.0);
+		CombatStateStore.setFallDistance(entity, 0.0);
 	}
 	
 	@Override
@@ -190,20 +189,7 @@ public class VanillaFallFeature implements FallFeature, CombatFeature, Registrab
 		Point offsetDown = offset.add(0, -1, 0);
 		Block block = instance.getBlock(offsetDown);
 		
-		TagManager tagManager = MinecraftServer.getTagManager();
-		var fences = tagManager.getTag(net.minestom.server.gamedata.tags.Tag.BasicType.BLOCKS, "minecraft:fences");
-		var walls = tagManager.getTag(net.minestom.server.gamedata.tags.Tag.BasicType.BLOCKS, "minecraft:walls");
-		var fenceGates = tagManager.getTag(net.minestom.server.gamedata.tags.Tag.BasicType.BLOCKS, "minecraft:fence_gates");
-		
-		assert fences != null;
-		assert walls != null;
-		assert fenceGates != null;
-		
-		if (fences.contains(block.namespace())
-				|| walls.contains(block.namespace())
-				|| fenceGates.contains(block.namespace())) {
-			return offsetDown;
-		}
+		if (CombatTagIndex.isFenceLike(block)) return offsetDown;
 		
 		return offset;
 	}
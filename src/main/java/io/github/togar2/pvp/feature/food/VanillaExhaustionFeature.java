@@ -1,22 +1,23 @@
 package io.github.togar2.pvp.feature.food;
 
+import io.github.togar2.pvp.damage.DamageTypeTable;
 import io.github.togar2.pvp.events.PlayerExhaustEvent;
 import io.github.togar2.pvp.feature.FeatureType;
 import io.github.togar2.pvp.feature.RegistrableFeature;
 import io.github.togar2.pvp.feature.config.DefinedFeature;
 import io.github.togar2.pvp.feature.config.FeatureConfiguration;
 import io.github.togar2.pvp.feature.provider.DifficultyProvider;
+import io.github.togar2.pvp.utils.CombatEventHandles;
+import io.github.togar2.pvp.utils.CombatStateStore;
 import io.github.togar2.pvp.utils.CombatVersion;
 import net.minestom.server.entity.Player;
 import net.minestom.server.entity.damage.DamageType;
-import net.minestom.server.event.EventDispatcher;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.event.player.PlayerBlockBreakEvent;
 import net.minestom.server.event.player.PlayerMoveEvent;
 import net.minestom.server.event.player.PlayerTickEvent;
 import net.minestom.server.event.trait.EntityInstanceEvent;
 import net.minestom.server.instance.block.Block;
-import net.minestom.server.tag.Tag;
 import net.minestom.server.world.Difficulty;
 
 import java.util.Objects;
@@ -31,8 +32,6 @@ public class VanillaExhaustionFeature implements ExhaustionFeature, RegistrableF
 			FeatureType.DIFFICULTY, FeatureType.VERSION
 	);
 	
-	public static final Tag<Float> EXHAUSTION = Tag.Float("exhaustion");
-	
 	private final FeatureConfiguration configuration;
 	
 	private DifficultyProvider difficultyFeature;
@@ -49,7 +48,7 @@ public class VanillaExhaustionFeature implements ExhaustionFeature, RegistrableF
 	}
 	
 	public static void initPlayer(Player player, boolean firstInit) {
-		player.setTag(EXHAUSTION, 0.0f);
+		CombatStateStore.setExhaustion(player, 0.0f);
 	}
 	
 	@Override
@@ -65,9 +64,9 @@ public class VanillaExhaustionFeature implements ExhaustionFeature, RegistrableF
 	protected void onTick(Player player) {
 		if (player.getGameMode().invulnerable()) return;
 		
-		float exhaustion = player.getTag(EXHAUSTION);
+		float exhaustion = CombatStateStore.getExhaustion(player);
 		if (exhaustion > 4) {
-			player.setTag(EXHAUSTION, exhaustion - 4);
+			CombatStateStore.setExhaustion(player, exhaustion - 4);
 			if (player.getFoodSaturation() > 0) {
 				player.setFoodSaturation(Math.max(player.getFoodSaturation() - 1, 0));
 			} else if (difficultyFeature.getValue(player) != Difficulty.PEACEFUL) {
@@ -106,9 +105,14 @@ public class VanillaExhaustionFeature implements ExhaustionFeature, RegistrableF
 	@Override
 	public void addExhaustion(Player player, float exhaustion) {
 		if (player.getGameMode().invulnerable()) return;
-		PlayerExhaustEvent playerExhaustEvent = new PlayerExhaustEvent(player, exhaustion);
-		EventDispatcher.callCancellable(playerExhaustEvent, () -> player.setTag(EXHAUSTION,
-				Math.min(player.getTag(EXHAUSTION) + playerExhaustEvent.getAmount(), 40)));
+		if (CombatEventHandles.PLAYER_EXHAUST.hasListener()) {
+			PlayerExhaustEvent playerExhaustEvent = new PlayerExhaustEvent(player, exhaustion);
+			CombatEventHandles.PLAYER_EXHAUST.call(playerExhaustEvent);
+			if (playerExhaustEvent.isCancelled()) return;
+			exhaustion = playerExhaustEvent.getAmount();
+		}
+		
+		CombatStateStore.setExhaustion(player, Math.min(CombatStateStore.getExhaustion(player) + exhaustion, 40));
 	}
 	
 	@Override
@@ -118,7 +122,7 @@ public class VanillaExhaustionFeature implements ExhaustionFeature, RegistrableF
 	
 	@Override
 	public void addDamageExhaustion(Player player, DamageType type) {
-		addExhaustion(player, type.exhaustion() * (version.legacy() ? 3 : 1));
+		addExhaustion(player, DamageTypeTable.get(type).exhaustion() * (version.legacy() ? 3 : 1));
 	}
 	
 	@Override
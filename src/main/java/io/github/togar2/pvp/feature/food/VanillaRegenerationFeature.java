@@ -6,6 +6,7 @@ import io.github.togar2.pvp.feature.RegistrableFeature;
 import io.github.togar2.pvp.feature.config.DefinedFeature;
 import io.github.togar2.pvp.feature.config.FeatureConfiguration;
 import io.github.togar2.pvp.feature.provider.DifficultyProvider;
+import io.github.togar2.pvp.utils.CombatStateStore;
 import io.github.togar2.pvp.utils.CombatVersion;
 import net.minestom.server.entity.Player;
 import net.minestom.server.entity.attribute.Attribute;
@@ -14,7 +15,6 @@ import net.minestom.server.event.EventDispatcher;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.event.player.PlayerTickEvent;
 import net.minestom.server.event.trait.EntityInstanceEvent;
-import net.minestom.server.tag.Tag;
 import net.minestom.server.world.Difficulty;
 
 /**
@@ -27,8 +27,6 @@ public class VanillaRegenerationFeature implements RegenerationFeature, Registra
 			FeatureType.EXHAUSTION, FeatureType.DIFFICULTY, FeatureType.VERSION
 	);
 	
-	public static final Tag<Integer> STARVATION_TICKS = Tag.Integer("starvationTicks");
-	
 	private final FeatureConfiguration configuration;
 	
 	private ExhaustionFeature exhaustionFeature;
@@ -47,7 +45,7 @@ public class VanillaRegenerationFeature implements RegenerationFeature, Registra
 	}
 	
 	public static void initPlayer(Player player, boolean firstInit) {
-		player.setTag(STARVATION_TICKS, 0);
+		CombatStateStore.setStarvationTicks(player, 0);
 	}
 	
 	@Override
@@ -61,7 +59,7 @@ public class VanillaRegenerationFeature implements RegenerationFeature, Registra
 		
 		int food = player.getFood();
 		float health = player.getHealth();
-		int starvationTicks = player.getTag(STARVATION_TICKS);
+		int starvationTicks = CombatStateStore.getStarvationTicks(player);
 		
 		if (version.modern() && player.getFoodSaturation() > 0 && health > 0
 				&& health < player.getAttributeValue(Attribute.MAX_HEALTH) && food >= 20) {
@@ -92,7 +90,7 @@ public class VanillaRegenerationFeature implements RegenerationFeature, Registra
 			starvationTicks = 0;
 		}
 		
-		player.setTag(STARVATION_TICKS, starvationTicks);
+		CombatStateStore.setStarvationTicks(player, starvationTicks);
 	}
 	
 	@Override
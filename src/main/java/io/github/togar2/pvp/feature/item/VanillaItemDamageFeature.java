@@ -7,7 +7,6 @@ import io.github.togar2.pvp.feature.FeatureType;
 import io.github.togar2.pvp.feature.config.DefinedFeature;
 import io.github.togar2.pvp.feature.config.FeatureConfiguration;
 import io.github.togar2.pvp.feature.enchantment.EnchantmentFeature;
-import net.minestom.server.MinecraftServer;
 import net.minestom.server.entity.EquipmentSlot;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.damage.DamageType;
@@ -91,9 +90,9 @@ public class VanillaItemDamageFeature implements ItemDamageFeature {
 			damage = 1;
 		}
 		
+		DamageTypeInfo info = DamageTypeInfo.of(damageType);
 		for (EquipmentSlot slot : slots) {
 			ItemStack stack = entity.getEquipment(slot);
-			DamageTypeInfo info = DamageTypeInfo.of(MinecraftServer.getDamageTypeRegistry().getKey(damageType));
 			if (!(info.fire() && stack.material().namespace().value().toLowerCase().contains("netherite"))
 					&& ArmorMaterial.fromMaterial(stack.material()) != null) {
 				damageEquipment(entity, slot, (int) damage);
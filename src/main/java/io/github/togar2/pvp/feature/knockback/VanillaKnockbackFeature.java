@@ -8,6 +8,7 @@ import io.github.togar2.pvp.feature.config.DefinedFeature;
 import io.github.togar2.pvp.feature.config.FeatureConfiguration;
 import io.github.togar2.pvp.legacy.LegacyKnockbackSettings;
 import io.github.togar2.pvp.player.CombatPlayer;
+import io.github.togar2.pvp.utils.CombatEventHandles;
 import io.github.togar2.pvp.utils.CombatVersion;
 import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.Entity;
@@ -15,7 +16,6 @@ import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.Player;
 import net.minestom.server.entity.attribute.Attribute;
 import net.minestom.server.entity.damage.Damage;
-import net.minestom.server.event.EventDispatcher;
 import net.minestom.server.network.packet.server.play.HitAnimationPacket;
 import org.jetbrains.annotations.Nullable;
 
@@ -78,25 +78,30 @@ public class VanillaKnockbackFeature implements KnockbackFeature, CombatFeature
 	protected boolean applyModernKnockback(LivingEntity target, Entity attacker, @Nullable Entity source,
 	                                       EntityKnockbackEvent.KnockbackType type, float strength,
 	                                       double dx, double dz) {
-		EntityKnockbackEvent knockbackEvent = new EntityKnockbackEvent(
-				target, source == null ? attacker : source,
-				type, strength
-		);
-		EventDispatcher.call(knockbackEvent);
-		if (knockbackEvent.isCancelled()) return false;
+		if (CombatEventHandles.ENTITY_KNOCKBACK.hasListener()) {
+			EntityKnockbackEvent knockbackEvent = new EntityKnockbackEvent(
+					target, source == null ? attacker : source,
+					type, strength
+			);
+			CombatEventHandles.ENTITY_KNOCKBACK.call(knockbackEvent);
+			if (knockbackEvent.isCancelled()) return false;
+			strength = knockbackEvent.getStrength();
+		}
 		
-		target.takeKnockback(knockbackEvent.getStrength(), dx, dz);
+		target.takeKnockback(strength, dx, dz);
 		return true;
 	}
 	
 	protected boolean applyLegacyDamageKnockback(LivingEntity target, Entity attacker, @Nullable Entity source,
 	                                             boolean extra, int knockback, double dx, double dz) {
-		LegacyKnockbackEvent legacyKnockbackEvent = new LegacyKnockbackEvent(
-				target, source == null ? attacker : source, extra);
-		EventDispatcher.call(legacyKnockbackEvent);
-		if (legacyKnockbackEvent.isCancelled()) return false;
-		
-		LegacyKnockbackSettings settings = legacyKnockbackEvent.getSettings();
+		LegacyKnockbackSettings settings = LegacyKnockbackSettings.DEFAULT;
+		if (CombatEventHandles.LEGACY_KNOCKBACK.hasListener()) {
+			LegacyKnockbackEvent legacyKnockbackEvent = new LegacyKnockbackEvent(
+					target, source == null ? attacker : source, extra);
+			CombatEventHandles.LEGACY_KNOCKBACK.call(legacyKnockbackEvent);
+			if (legacyKnockbackEvent.isCancelled()) return false;
+			settings = legacyKnockbackEvent.getSettings();
+		}
 		
 		double kbResistance = target.getAttributeValue(Attribute.KNOCKBACK_RESISTANCE);
 		double horizontal = settings.horizontal() * (1 - kbResistance) * knockback;
@@ -3,7 +3,7 @@ package io.github.togar2.pvp.feature.state;
 import io.github.togar2.pvp.feature.FeatureType;
 import io.github.togar2.pvp.feature.RegistrableFeature;
 import io.github.togar2.pvp.feature.config.DefinedFeature;
-import net.minestom.server.MinecraftServer;
+import io.github.togar2.pvp.utils.CombatTagIndex;
 import net.minestom.server.entity.GameMode;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.Player;
@@ -50,11 +50,8 @@ public class VanillaPlayerStateFeature implements PlayerStateFeature, Registrabl
 	public boolean isClimbing(LivingEntity entity) {
 		if (entity instanceof Player player && player.getGameMode() == GameMode.SPECTATOR) return false;
 		
-		var tag = MinecraftServer.getTagManager().getTag(net.minestom.server.gamedata.tags.Tag.BasicType.BLOCKS, "minecraft:climbable");
-		assert tag != null;
-		
 		Block block = Objects.requireNonNull(entity.getInstance()).getBlock(entity.getPosition());
-		return tag.contains(block.namespace());
+		return CombatTagIndex.isClimbable(block);
 	}
 	
 	@Override
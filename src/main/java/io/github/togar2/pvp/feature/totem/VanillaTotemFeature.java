@@ -6,7 +6,6 @@ import io.github.togar2.pvp.feature.CombatFeature;
 import io.github.togar2.pvp.feature.FeatureType;
 import io.github.togar2.pvp.feature.config.DefinedFeature;
 import io.github.togar2.pvp.utils.PotionFlags;
-import net.minestom.server.MinecraftServer;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.Player;
 import net.minestom.server.entity.PlayerHand;
@@ -27,7 +26,7 @@ public class VanillaTotemFeature implements TotemFeature, CombatFeature {
 	
 	@Override
 	public boolean tryProtect(LivingEntity entity, DamageType type) {
-		if (DamageTypeInfo.of(MinecraftServer.getDamageTypeRegistry().getKey(type)).outOfWorld()) return false;
+		if (DamageTypeInfo.of(type).outOfWorld()) return false;
 		
 		boolean hasTotem = false;
 		for (PlayerHand hand : PlayerHand.values()) {
@@ -0,0 +1,66 @@
+package io.github.togar2.pvp.utils;
+
+import net.minestom.server.instance.block.Block;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Builds tables indexed by block state id, so that values derived from the registry data of a block state
+ * can be looked up on hot paths without going through the registry.
+ * Every table has {@link #size()} entries, state ids outside of it belong to blocks which are not known to Minestom.
+ */
+public final class BlockStateTable {
+	private static volatile int size = -1;
+	
+	private BlockStateTable() {}
+	
+	/**
+	 * Gets the size of the tables, which is one more than the highest block state id.
+	 *
+	 * @return the size of the tables
+	 */
+	public static int size() {
+		int size = BlockStateTable.size;
+		if (size < 0) {
+			int maxStateId = 0;
+			for (Block block : Block.values()) {
+				for (Block state : block.possibleStates()) {
+					maxStateId = Math.max(maxStateId, state.stateId());
+				}
+			}
+			size = maxStateId + 1;
+			BlockStateTable.size = size;
+		}
+		return size;
+	}
+	
+	public static double[] ofDouble(ToDoubleFunction<Block> function) {
+		double[] table = new double[size()];
+		forEachState(state -> table[state.stateId()] = function.applyAsDouble(state));
+		return table;
+	}
+	
+	public static boolean[] ofBoolean(Predicate<Block> predicate) {
+		boolean[] table = new boolean[size()];
+		forEachState(state -> table[state.stateId()] = predicate.test(state));
+		return table;
+	}
+	
+	public static <T> T[] of(IntFunction<T[]> generator, Function<Block, T> function) {
+		T[] table = generator.apply(size());
+		forEachState(state -> table[state.stateId()] = function.apply(state));
+		return table;
+	}
+	
+	private static void forEachState(Consumer<Block> consumer) {
+		for (Block block : Block.values()) {
+			for (Block state : block.possibleStates()) {
+				consumer.accept(state);
+			}
+		}
+	}
+}
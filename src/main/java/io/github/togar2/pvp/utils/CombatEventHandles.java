@@ -0,0 +1,61 @@
+package io.github.togar2.pvp.utils;
+
+import io.github.togar2.pvp.events.*;
+import net.minestom.server.event.Event;
+import net.minestom.server.event.EventDispatcher;
+import net.minestom.server.event.ListenerHandle;
+import net.minestom.server.event.entity.projectile.ProjectileCollideWithBlockEvent;
+import net.minestom.server.event.entity.projectile.ProjectileCollideWithEntityEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Cached {@link ListenerHandle}s of the global event handler for the combat events which are called most often.
+ * <p>
+ * The features use {@link Handle#hasListener()} to skip constructing an event when nothing is listening to it.
+ * An event without listeners cannot be modified or cancelled, so the features then continue with the default values.
+ */
+public final class CombatEventHandles {
+	public static final Handle<FinalDamageEvent> FINAL_DAMAGE = new Handle<>(FinalDamageEvent.class);
+	public static final Handle<EntityPreDeathEvent> ENTITY_PRE_DEATH = new Handle<>(EntityPreDeathEvent.class);
+	public static final Handle<PrepareAttackEvent> PREPARE_ATTACK = new Handle<>(PrepareAttackEvent.class);
+	public static final Handle<FinalAttackEvent> FINAL_ATTACK = new Handle<>(FinalAttackEvent.class);
+	public static final Handle<EntityKnockbackEvent> ENTITY_KNOCKBACK = new Handle<>(EntityKnockbackEvent.class);
+	public static final Handle<LegacyKnockbackEvent> LEGACY_KNOCKBACK = new Handle<>(LegacyKnockbackEvent.class);
+	public static final Handle<PlayerExhaustEvent> PLAYER_EXHAUST = new Handle<>(PlayerExhaustEvent.class);
+	public static final Handle<ProjectileCollideWithEntityEvent> PROJECTILE_COLLIDE_WITH_ENTITY = new Handle<>(ProjectileCollideWithEntityEvent.class);
+	public static final Handle<ProjectileCollideWithBlockEvent> PROJECTILE_COLLIDE_WITH_BLOCK = new Handle<>(ProjectileCollideWithBlockEvent.class);
+	
+	private CombatEventHandles() {}
+	
+	/**
+	 * A {@link ListenerHandle} which is only requested from the global event handler when it is first used,
+	 * since the global event handler might not exist yet when the features are constructed.
+	 *
+	 * @param <E> the event type
+	 */
+	public static final class Handle<E extends Event> {
+		private final Class<E> eventType;
+		private volatile ListenerHandle<E> handle;
+		
+		private Handle(Class<E> eventType) {
+			this.eventType = eventType;
+		}
+		
+		public @NotNull ListenerHandle<E> get() {
+			ListenerHandle<E> handle = this.handle;
+			if (handle == null) {
+				handle = EventDispatcher.getHandle(eventType);
+				this.handle = handle;
+			}
+			return handle;
+		}
+		
+		public boolean hasListener() {
+			return get().hasListener();
+		}
+		
+		public void call(@NotNull E event) {
+			get().call(event);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package io.github.togar2.pvp.utils;
+
+import net.minestom.server.entity.Entity;
+import net.minestom.server.event.Event;
+import net.minestom.server.event.EventNode;
+import net.minestom.server.event.entity.EntityDespawnEvent;
+
+import java.util.Arrays;
+
+/**
+ * Primitive per-entity storage for combat bookkeeping which is read and written on every hit, move or tick.
+ * <p>
+ * Values are kept in pages of primitive arrays, indexed directly by entity id.
+ * Since Minestom never reuses entity ids, a page is dropped once all of its entities have despawned.
+ * Entities which have never been written to read the default values.
+ * <p>
+ * The store is cleaned up by the listener registered in {@link #init(EventNode)},
+ * which is done by {@link io.github.togar2.pvp.MinestomPvP#init()}.
+ */
+public final class CombatStateStore {
+	private static final int PAGE_BITS = 10;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	
+	public static final long DEFAULT_INVULNERABLE_UNTIL = -10000;
+	
+	private static volatile Page[] pages = new Page[16];
+	
+	private CombatStateStore() {}
+	
+	public static void init(EventNode<Event> node) {
+		node.addListener(EntityDespawnEvent.class, event -> release(event.getEntity()));
+	}
+	
+	/**
+	 * Gets the alive tick until which the entity is invulnerable to damage lower than its last damage.
+	 *
+	 * @param entity the entity
+	 * @return the alive tick at which the invulnerability ends
+	 */
+	public static long getInvulnerableUntil(Entity entity) {
+		int id = entity.getEntityId();
+		Page page = readable(id);
+		return page == null ? DEFAULT_INVULNERABLE_UNTIL : page.invulnerableUntil[id & PAGE_MASK];
+	}
+	
+	public static void setInvulnerableUntil(Entity entity, long aliveTicks) {
+		int id = entity.getEntityId();
+		writable(id).invulnerableUntil[id & PAGE_MASK] = aliveTicks;
+	}
+	
+	public static float getLastDamage(Entity entity) {
+		int id = entity.getEntityId();
+		Page page = readable(id);
+		return page == null ? 0 : page.lastDamage[id & PAGE_MASK];
+	}
+	
+	public static void setLastDamage(Entity entity, float lastDamage) {
+		int id = entity.getEntityId();
+		writable(id).lastDamage[id & PAGE_MASK] = lastDamage;
+	}
+	
+	public static float getExhaustion(Entity entity) {
+		int id = entity.getEntityId();
+		Page page = readable(id);
+		return page == null ? 0 : page.exhaustion[id & PAGE_MASK];
+	}
+	
+	public static void setExhaustion(Entity entity, float exhaustion) {
+		int id = entity.getEntityId();
+		writable(id).exhaustion[id & PAGE_MASK] = exhaustion;
+	}
+	
+	public static double getFallDistance(Entity entity) {
+		int id = entity.getEntityId();
+		Page page = readable(id);
+		return page == null ? 0 : page.fallDistance[id & PAGE_MASK];
+	}
+	
+	public static void setFallDistance(Entity entity, double fallDistance) {
+		int id = entity.getEntityId();
+		writable(id).fallDistance[id & PAGE_MASK] = fallDistance;
+	}
+	
+	public static int getStarvationTicks(Entity entity) {
+		int id = entity.getEntityId();
+		Page page = readable(id);
+		return page == null ? 0 : page.starvationTicks[id & PAGE_MASK];
+	}
+	
+	public static void setStarvationTicks(Entity entity, int starvationTicks) {
+		int id = entity.getEntityId();
+		writable(id).starvationTicks[id & PAGE_MASK] = starvationTicks;
+	}
+	
+	/**
+	 * Resets all the values of an entity to their defaults and frees its slot.
+	 *
+	 * @param entity the entity to release
+	 */
+	public static synchronized void release(Entity entity) {
+		int id = entity.getEntityId();
+		int pageIndex = id >>> PAGE_BITS;
+		if (pageIndex >= pages.length) return;
+		
+		Page page = pages[pageIndex];
+		if (page == null || !page.isPresent(id & PAGE_MASK)) return;
+		
+		page.reset(id & PAGE_MASK);
+		if (page.live == 0) pages[pageIndex] = null;
+	}
+	
+	private static Page readable(int id) {
+		Page[] pages = CombatStateStore.pages;
+		int pageIndex = id >>> PAGE_BITS;
+		return pageIndex < pages.length ? pages[pageIndex] : null;
+	}
+	
+	private static Page writable(int id) {
+		Page page = readable(id);
+		if (page != null && page.isPresent(id & PAGE_MASK)) return page;
+		return acquire(id);
+	}
+	
+	private static synchronized Page acquire(int id) {
+		int pageIndex = id >>> PAGE_BITS;
+		Page[] pages = CombatStateStore.pages;
+		if (pageIndex >= pages.length) {
+			pages = Arrays.copyOf(pages, Math.max(pages.length * 2, pageIndex + 1));
+			CombatStateStore.pages = pages;
+		}
+		
+		Page page = pages[pageIndex];
+		if (page == null) {
+			page = new Page();
+			pages[pageIndex] = page;
+		}
+		
+		page.markPresent(id & PAGE_MASK);
+		return page;
+	}
+	
+	private static final class Page {
+		private final long[] invulnerableUntil = new long[PAGE_SIZE];
+		private final float[] lastDamage = new float[PAGE_SIZE];
+		private final float[] exhaustion = new float[PAGE_SIZE];
+		private final double[] fallDistance = new double[PAGE_SIZE];
+		private final int[] starvationTicks = new int[PAGE_SIZE];
+		private final long[] present = new long[PAGE_SIZE >>> 6];
+		private int live;
+		
+		private Page() {
+			Arrays.fill(invulnerableUntil, DEFAULT_INVULNERABLE_UNTIL);
+		}
+		
+		private boolean isPresent(int slot) {
+			return (present[slot >>> 6] & (1L << slot)) != 0;
+		}
+		
+		private void markPresent(int slot) {
+			if (isPresent(slot)) return;
+			present[slot >>> 6] |= 1L << slot;
+			live++;
+		}
+		
+		private void reset(int slot) {
+			present[slot >>> 6] &= ~(1L << slot);
+			live--;
+			
+			invulnerableUntil[slot] = DEFAULT_INVULNERABLE_UNTIL;
+			lastDamage[slot] = 0;
+			exhaustion[slot] = 0;
+			fallDistance[slot] = 0;
+			starvationTicks[slot] = 0;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package io.github.togar2.pvp.utils;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.entity.EntityType;
+import net.minestom.server.gamedata.tags.Tag;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.utils.NamespaceID;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Index of the vanilla block and entity type tags used by the combat features.
+ * The tags are compiled into bitsets indexed by block id or entity type id,
+ * so checking whether something is in a tag does not need a namespace lookup.
+ * <p>
+ * The index is built the first time it is used. It remembers how many block and entity type tags
+ * the {@link net.minestom.server.gamedata.tags.TagManager} had at that point, and is rebuilt automatically
+ * when that count changes. If existing tags are replaced without changing the count, {@link #rebuild()} should be called.
+ */
+public final class CombatTagIndex {
+	private static volatile Index index = null;
+	
+	private CombatTagIndex() {}
+	
+	public static boolean isClimbable(Block block) {
+		return index().climbable.get(block.id());
+	}
+	
+	/**
+	 * Checks whether the block is a fence, wall or fence gate, which entities can land on from a block higher.
+	 *
+	 * @param block the block to check
+	 * @return whether the block is a fence, wall or fence gate
+	 */
+	public static boolean isFenceLike(Block block) {
+		return index().fenceLike.get(block.id());
+	}
+	
+	public static boolean isFreezeHurtsExtra(EntityType entityType) {
+		return index().freezeHurtsExtra.get(entityType.id());
+	}
+	
+	/**
+	 * Recompiles the index from the current tags.
+	 */
+	public static synchronized void rebuild() {
+		index = build();
+	}
+	
+	private static Index index() {
+		Index index = CombatTagIndex.index;
+		if (index == null || index.tagCount != tagCount()) {
+			synchronized (CombatTagIndex.class) {
+				index = CombatTagIndex.index;
+				if (index == null || index.tagCount != tagCount()) {
+					index = build();
+					CombatTagIndex.index = index;
+				}
+			}
+		}
+		return index;
+	}
+	
+	private static int tagCount() {
+		var tagMap = MinecraftServer.getTagManager().getTagMap();
+		List<Tag> blocks = tagMap.get(Tag.BasicType.BLOCKS);
+		List<Tag> entityTypes = tagMap.get(Tag.BasicType.ENTITY_TYPES);
+		return (blocks == null ? 0 : blocks.size()) + (entityTypes == null ? 0 : entityTypes.size());
+	}
+	
+	private static Index build() {
+		// Counted before compiling, so tags added while compiling cause another rebuild
+		int tagCount = tagCount();
+		
+		BitSet climbable = compile(Tag.BasicType.BLOCKS, Block::fromNamespaceId, Block::id,
+				"minecraft:climbable");
+		BitSet fenceLike = compile(Tag.BasicType.BLOCKS, Block::fromNamespaceId, Block::id,
+				"minecraft:fences", "minecraft:walls", "minecraft:fence_gates");
+		BitSet freezeHurtsExtra = compile(Tag.BasicType.ENTITY_TYPES, EntityType::fromNamespaceId, EntityType::id,
+				"minecraft:freeze_hurts_extra_types");
+		
+		return new Index(climbable, fenceLike, freezeHurtsExtra, tagCount);
+	}
+	
+	private static <T> BitSet compile(Tag.BasicType type, Function<NamespaceID, T> resolver,
+	                                  Function<T, Integer> idGetter, String... tagNames) {
+		BitSet result = new BitSet();
+		for (String tagName : tagNames) {
+			Tag tag = MinecraftServer.getTagManager().getTag(type, tagName);
+			if (tag == null) throw new IllegalStateException("Missing tag " + tagName);
+			
+			for (NamespaceID value : tag.getValues()) {
+				T resolved = resolver.apply(value);
+				if (resolved != null) result.set(idGetter.apply(resolved));
+			}
+		}
+		return result;
+	}
+	
+	private record Index(BitSet climbable, BitSet fenceLike, BitSet freezeHurtsExtra, int tagCount) {}
+}
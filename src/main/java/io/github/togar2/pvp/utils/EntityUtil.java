@@ -2,18 +2,45 @@ package io.github.togar2.pvp.utils;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.event.HoverEvent;
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.EntityType;
 import net.minestom.server.entity.ItemEntity;
 import net.minestom.server.entity.LivingEntity;
 import net.minestom.server.entity.Player;
 import net.minestom.server.entity.damage.Damage;
+import net.minestom.server.instance.EntityTracker;
+import net.minestom.server.instance.Instance;
 import net.minestom.server.item.ItemStack;
 import net.minestom.server.utils.time.TimeUnit;
 
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
 import java.util.Objects;
 
 public class EntityUtil {
+	private static final VarHandle LAST_DAMAGE;
+	
+	private static volatile double defaultEntityExtent = -1;
+	
+	static {
+		try {
+			LAST_DAMAGE = MethodHandles.privateLookupIn(LivingEntity.class, MethodHandles.lookup())
+					.findVarHandle(LivingEntity.class, "lastDamage", Damage.class);
+		} catch (NoSuchFieldException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	/**
+	 * Resolves the field handles used by this class,
+	 * so that an incompatible Minestom version fails at startup instead of on the first hit.
+	 */
+	public static void init() {}
+	
 	public static void spawnItemAtLocation(Entity entity, ItemStack itemStack, double up) {
 		if (itemStack.isAir()) return;
 		
@@ -36,14 +63,55 @@ public class EntityUtil {
 		}
 	}
 	
-	public static void setLastDamage(LivingEntity livingEntity, Damage lastDamage) {
-		// Use reflection to set lastDamage field
-		try {
-			Field field = LivingEntity.class.getDeclaredField("lastDamage");
-			field.setAccessible(true);
-			field.set(livingEntity, lastDamage);
-		} catch (NoSuchFieldException | IllegalAccessException e) {
-			e.printStackTrace();
+	/**
+	 * Collects the entities whose bounding box intersects the given box.
+	 * Uses the chunk-bucketed {@link EntityTracker} of the instance, so only entities near the box are checked.
+	 * <p>
+	 * The search is widened by the largest default bounding box of all entity types.
+	 * Entities with a bounding box which sticks out further than that from their position,
+	 * for example because it has been changed with {@link Entity#setBoundingBox(BoundingBox)}, might not be found.
+	 *
+	 * @param instance the instance to search
+	 * @param box the box to check for intersection
+	 * @param position the position of the box
+	 * @param target the type of entities to collect
+	 * @param result the collection to add the entities to
+	 * @param <T> the type of entities to collect
+	 */
+	public static <T extends Entity> void collectIntersecting(Instance instance, BoundingBox box, Point position,
+	                                                          EntityTracker.Target<T> target, Collection<? super T> result) {
+		double halfX = box.width() / 2, halfY = box.height() / 2, halfZ = box.depth() / 2;
+		Vec center = new Vec(
+				position.x() + box.minX() + halfX,
+				position.y() + box.minY() + halfY,
+				position.z() + box.minZ() + halfZ
+		);
+		
+		// The tracker compares entity positions, which can be up to an entity size away from the box they intersect
+		double range = Math.sqrt(halfX * halfX + halfY * halfY + halfZ * halfZ) + defaultEntityExtent();
+		instance.getEntityTracker().nearbyEntities(center, range, target, entity -> {
+			if (box.intersectEntity(position, entity)) result.add(entity);
+		});
+	}
+	
+	/**
+	 * Gets the largest distance from its position that the default bounding box of any entity type reaches.
+	 *
+	 * @return the largest default entity extent
+	 */
+	public static double defaultEntityExtent() {
+		double extent = defaultEntityExtent;
+		if (extent < 0) {
+			for (EntityType entityType : EntityType.values()) {
+				double halfWidth = entityType.width() / 2;
+				extent = Math.max(extent, Math.sqrt(2 * halfWidth * halfWidth + entityType.height() * entityType.height()));
+			}
+			defaultEntityExtent = extent;
 		}
+		return extent;
+	}
+	
+	public static void setLastDamage(LivingEntity livingEntity, Damage lastDamage) {
+		LAST_DAMAGE.set(livingEntity, lastDamage);
 	}
 }
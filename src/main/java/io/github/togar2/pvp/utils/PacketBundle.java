@@ -0,0 +1,75 @@
+package io.github.togar2.pvp.utils;
+
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.Player;
+import net.minestom.server.network.packet.server.play.BundlePacket;
+import net.minestom.server.utils.PacketSendingUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Frames the packets which are sent during a single action, like an attack, with {@link BundlePacket}s,
+ * so the client handles all of them in the same frame.
+ * <p>
+ * Opening a bundle sends one delimiter to the viewers of the participating entities (and to the participants
+ * themselves if they are players), closing it sends the second delimiter to the same players.
+ * Each delimiter is serialized once for all receivers.
+ * <p>
+ * Packets are not collected in between, so this does not reduce the number of packets that are sent,
+ * it only makes the client apply them together. Everything sent to those players while the bundle is open,
+ * including packets Minestom sends itself like metadata and velocity updates, ends up inside the bundle
+ * in the order it was sent. This also includes unrelated packets, for example from entities ticked by another thread
+ * or the chunk and entity updates of the receiving player, which the client then handles a little later than it would otherwise.
+ * A bundle should therefore only be kept open for the duration of a single action.
+ * <p>
+ * If a bundle is opened while another one is already open on the same thread, the inner bundle does nothing,
+ * since delimiters cannot be nested.
+ */
+public final class PacketBundle implements AutoCloseable {
+	private static final ThreadLocal<PacketBundle> CURRENT = new ThreadLocal<>();
+	private static final BundlePacket DELIMITER = new BundlePacket();
+	private static final PacketBundle NESTED = new PacketBundle(Set.of());
+	
+	private final Set<Player> receivers;
+	private boolean closed = false;
+	
+	private PacketBundle(Set<Player> receivers) {
+		this.receivers = receivers;
+	}
+	
+	/**
+	 * Opens a bundle for the current thread.
+	 *
+	 * @param participants the entities whose viewers should receive the bundle
+	 * @return the bundle, which sends the closing delimiter when closed
+	 */
+	public static @NotNull PacketBundle open(@NotNull Entity... participants) {
+		if (CURRENT.get() != null) return NESTED;
+		
+		Set<Player> receivers = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Entity participant : participants) {
+			receivers.addAll(participant.getViewers());
+			if (participant instanceof Player player) receivers.add(player);
+		}
+		
+		PacketBundle bundle = new PacketBundle(receivers);
+		CURRENT.set(bundle);
+		if (!receivers.isEmpty()) PacketSendingUtils.sendGroupedPacket(receivers, DELIMITER);
+		return bundle;
+	}
+	
+	/**
+	 * Sends the closing delimiter, if this is the outermost bundle of the current thread.
+	 */
+	@Override
+	public void close() {
+		if (this == NESTED || closed) return;
+		closed = true;
+		CURRENT.remove();
+		
+		if (!receivers.isEmpty()) PacketSendingUtils.sendGroupedPacket(receivers, DELIMITER);
+	}
+}
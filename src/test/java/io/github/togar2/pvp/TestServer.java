@@ -0,0 +1,36 @@
+package io.github.togar2.pvp;
+
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.InstanceContainer;
+
+/**
+ * Initializes the server once for all tests, without starting it.
+ */
+public final class TestServer {
+	private static boolean initialized = false;
+	
+	private TestServer() {}
+	
+	public static synchronized void init() {
+		if (initialized) return;
+		MinecraftServer.init();
+		MinestomPvP.init();
+		initialized = true;
+	}
+	
+	/**
+	 * Creates an empty instance with the chunks around the origin loaded.
+	 *
+	 * @param chunkRadius the radius of loaded chunks around the origin chunk
+	 * @return the instance
+	 */
+	public static InstanceContainer createInstance(int chunkRadius) {
+		InstanceContainer instance = MinecraftServer.getInstanceManager().createInstanceContainer();
+		for (int chunkX = -chunkRadius; chunkX <= chunkRadius; chunkX++) {
+			for (int chunkZ = -chunkRadius; chunkZ <= chunkRadius; chunkZ++) {
+				instance.loadChunk(chunkX, chunkZ).join();
+			}
+		}
+		return instance;
+	}
+}
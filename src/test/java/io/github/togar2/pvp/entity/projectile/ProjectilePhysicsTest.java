@@ -0,0 +1,86 @@
+package io.github.togar2.pvp.entity.projectile;
+
+import io.github.togar2.pvp.TestServer;
+import io.github.togar2.pvp.feature.effect.EffectFeature;
+import io.github.togar2.pvp.feature.enchantment.EnchantmentFeature;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that projectiles follow exactly the same trajectory with and without the projectile system.
+ */
+public class ProjectilePhysicsTest {
+	@BeforeAll
+	public static void init() {
+		TestServer.init();
+	}
+	
+	@Test
+	public void trajectoriesMatchWithoutPhysics() {
+		Instance withoutPhysics = createInstance();
+		Instance withPhysics = createInstance();
+		ProjectilePhysics.enable(withPhysics);
+		
+		for (int i = 0; i < 12; i++) {
+			Pos start = new Pos(0.5 + i * 0.37, 3 + i % 4, -12.5 + i * 2.1);
+			Vec velocity = new Vec(10 + i * 3, 8 - i * 1.5, i % 3 - 1);
+			
+			Arrow expected = spawn(withoutPhysics, start, velocity);
+			Arrow actual = spawn(withPhysics, start, velocity);
+			
+			boolean stepped = false;
+			for (int tick = 0; tick < 100; tick++) {
+				long time = tick * 50L;
+				expected.tick(time);
+				actual.tick(time);
+				stepped |= actual.physicsBatch != null;
+				
+				assertEquals(expected.getPosition(), actual.getPosition(), "arrow " + i + " tick " + tick);
+				assertEquals(expected.getVelocity(), actual.getVelocity(), "arrow " + i + " tick " + tick);
+				assertEquals(expected.isStuck(), actual.isStuck(), "arrow " + i + " tick " + tick);
+			}
+			assertTrue(stepped, "arrow " + i + " never joined the projectile system");
+			
+			expected.remove();
+			actual.remove();
+		}
+	}
+	
+	private static Arrow spawn(Instance instance, Pos position, Vec velocity) {
+		Arrow arrow = new Arrow(null, EffectFeature.NO_OP, EnchantmentFeature.NO_OP);
+		arrow.setInstance(instance, position).join();
+		arrow.setVelocity(velocity);
+		return arrow;
+	}
+	
+	/**
+	 * Creates an instance with a floor, a wall with a gap and a few slabs, so the arrows fly through air
+	 * as well as hit and pass close to blocks.
+	 */
+	private static Instance createInstance() {
+		Instance instance = TestServer.createInstance(3);
+		for (int x = -40; x < 40; x++) {
+			for (int z = -40; z < 40; z++) {
+				instance.setBlock(x, 0, z, Block.STONE);
+			}
+		}
+		for (int y = 1; y < 12; y++) {
+			for (int z = -40; z < 40; z++) {
+				if (y > 4 && y < 7 && z > -4 && z < 4) continue;
+				instance.setBlock(30, y, z, Block.STONE);
+			}
+		}
+		for (int x = 5; x < 25; x += 4) {
+			instance.setBlock(x, 1, 0, Block.OAK_SLAB);
+			instance.setBlock(x, 4, -8, Block.OAK_FENCE);
+		}
+		return instance;
+	}
+}
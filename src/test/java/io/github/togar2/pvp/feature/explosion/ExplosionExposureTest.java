@@ -0,0 +1,115 @@
+package io.github.togar2.pvp.feature.explosion;
+
+import io.github.togar2.pvp.TestServer;
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.collision.CollisionUtils;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.EntityType;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the exposure tracer with the line of sight check of Minestom the exposure used to be computed with.
+ */
+public class ExplosionExposureTest {
+	private static final Block[] PALETTE = {
+			Block.STONE, Block.OAK_FENCE, Block.COBBLESTONE_WALL, Block.OAK_SLAB, Block.OAK_STAIRS,
+			Block.GLASS_PANE, Block.LADDER, Block.SHORT_GRASS, Block.ANVIL
+	};
+	
+	private static Instance instance;
+	
+	@BeforeAll
+	public static void init() {
+		TestServer.init();
+		instance = TestServer.createInstance(1);
+		
+		Random random = new Random(0);
+		for (int i = 0; i < 400; i++) {
+			instance.setBlock(random.nextInt(24) - 12, random.nextInt(12) - 4, random.nextInt(24) - 12,
+					PALETTE[random.nextInt(PALETTE.length)]);
+		}
+	}
+	
+	@Test
+	public void reachesMatchesLineOfSight() {
+		Random random = new Random(1);
+		BoundingBox unitBox = new BoundingBox(1, 1, 1);
+		for (int i = 0; i < 5000; i++) {
+			Vec start = randomPoint(random);
+			Vec end = randomPoint(random);
+			
+			boolean expected = CollisionUtils.isLineOfSightReachingShape(instance, null, start, end, unitBox);
+			assertEquals(expected, ExplosionExposure.reaches(instance, start, end), start + " -> " + end);
+		}
+	}
+	
+	@Test
+	public void exposureMatchesOldExposure() {
+		Random random = new Random(2);
+		for (int i = 0; i < 200; i++) {
+			Entity entity = new Entity(i % 2 == 0 ? EntityType.ZOMBIE : EntityType.PIG);
+			entity.setInstance(instance, new Pos(randomPoint(random))).join();
+			Vec center = randomPoint(random);
+			
+			double expected = oldExposure(center, entity);
+			assertEquals(expected, ExplosionExposure.getExposure(center, entity), entity.getPosition() + " " + center);
+			
+			ExplosionSnapshot snapshot = ExplosionSnapshot.capture(instance, center.x(), center.y(), center.z(), 32);
+			assertEquals(expected, ExplosionExposure.getExposure(snapshot, center,
+					entity.getBoundingBox(), entity.getPosition()), "snapshot " + entity.getPosition() + " " + center);
+			
+			entity.remove();
+		}
+	}
+	
+	private static Vec randomPoint(Random random) {
+		return new Vec(random.nextDouble() * 20 - 10, random.nextDouble() * 8 - 2, random.nextDouble() * 20 - 10);
+	}
+	
+	/**
+	 * The exposure computation of the explosion supplier before the tracer was added.
+	 */
+	private static double oldExposure(Point center, Entity entity) {
+		BoundingBox box = entity.getBoundingBox();
+		double xStep = 1 / (box.width() * 2 + 1);
+		double yStep = 1 / (box.height() * 2 + 1);
+		double zStep = 1 / (box.depth() * 2 + 1);
+		double g = (1 - Math.floor(1 / xStep) * xStep) / 2;
+		double h = (1 - Math.floor(1 / zStep) * zStep) / 2;
+		if (xStep < 0 || yStep < 0 || zStep < 0) return 0;
+		
+		int exposedCount = 0;
+		int rayCount = 0;
+		double dx = 0;
+		while (dx <= 1) {
+			double dy = 0;
+			while (dy <= 1) {
+				double dz = 0;
+				while (dz <= 1) {
+					double rayX = box.minX() + dx * box.width();
+					double rayY = box.minY() + dy * box.height();
+					double rayZ = box.minZ() + dz * box.depth();
+					Point point = new Vec(rayX + g, rayY, rayZ + h).add(entity.getPosition());
+					if (CollisionUtils.isLineOfSightReachingShape(entity.getInstance(), null, point, center,
+							new BoundingBox(1, 1, 1))) exposedCount++;
+					rayCount++;
+					dz += zStep;
+				}
+				dy += yStep;
+			}
+			dx += xStep;
+		}
+		
+		return exposedCount / (double) rayCount;
+	}
+}
@@ -0,0 +1,142 @@
+package io.github.togar2.pvp.feature.explosion;
+
+import io.github.togar2.pvp.TestServer;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.block.Block;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Compares the destroyed blocks of the explosion rays with the ray marching the explosion supplier used to do.
+ */
+public class ExplosionRaysTest {
+	private static final Block[] PALETTE = {
+			Block.AIR, Block.AIR, Block.AIR, Block.STONE, Block.DIRT, Block.OAK_PLANKS,
+			Block.GLASS, Block.OBSIDIAN, Block.WATER, Block.TNT, Block.OAK_FENCE
+	};
+	
+	/**
+	 * A fixed scattered world, so the rays cross blocks of different resistances.
+	 */
+	private static final Block.Getter WORLD = (x, y, z, condition) -> {
+		if (y < -8) return Block.BEDROCK;
+		int hash = HashCommon.murmurHash3(VanillaExplosionSupplier.pack(x, y, z) + 12345);
+		return PALETTE[Math.floorMod(hash, PALETTE.length)];
+	};
+	
+	@BeforeAll
+	public static void init() {
+		TestServer.init();
+	}
+	
+	@Test
+	public void singleExplosionMatchesOldRays() {
+		for (int seed = 0; seed < 20; seed++) {
+			double centerX = seed * 3.7 - 20, centerY = seed % 5 - 2.5, centerZ = seed * -1.3 + 7;
+			float strength = 1 + seed % 7;
+			
+			List<Vec> expected = oldRays(WORLD, centerX, centerY, centerZ, strength, new Random(seed));
+			List<Vec> actual = unpack(VanillaExplosionSupplier.castRays(WORLD, centerX, centerY, centerZ,
+					strength, 1, new Random(seed)));
+			assertEquals(expected, actual, "seed " + seed);
+		}
+	}
+	
+	@Test
+	public void mergedExplosionsMatchSequentialOldRays() {
+		for (int seed = 0; seed < 10; seed++) {
+			double centerX = seed * 2.1, centerY = 0.5, centerZ = -seed * 1.7;
+			float strength = 4;
+			int count = 2 + seed % 4;
+			
+			// Apply the explosions one by one, every explosion sees the blocks destroyed before it as air
+			Random random = new Random(seed);
+			List<Vec> expected = new ArrayList<>();
+			Set<Vec> destroyed = new HashSet<>();
+			for (int i = 0; i < count; i++) {
+				Block.Getter world = (x, y, z, condition) ->
+						destroyed.contains(new Vec(x, y, z)) ? Block.AIR : WORLD.getBlock(x, y, z, condition);
+				for (Vec block : oldRays(world, centerX, centerY, centerZ, strength, random)) {
+					if (destroyed.add(block)) expected.add(block);
+				}
+			}
+			
+			List<Vec> actual = unpack(VanillaExplosionSupplier.castRays(WORLD, centerX, centerY, centerZ,
+					strength, count, new Random(seed)));
+			assertFalse(actual.isEmpty());
+			assertEquals(expected, actual, "seed " + seed);
+		}
+	}
+	
+	private static List<Vec> unpack(LongLinkedOpenHashSet positions) {
+		List<Vec> result = new ArrayList<>(positions.size());
+		for (long packed : positions) {
+			result.add(new Vec(
+					VanillaExplosionSupplier.unpackX(packed),
+					VanillaExplosionSupplier.unpackY(packed),
+					VanillaExplosionSupplier.unpackZ(packed)
+			));
+		}
+		return result;
+	}
+	
+	/**
+	 * The ray marching of the explosion supplier before the rays were precomputed.
+	 */
+	private static List<Vec> oldRays(Block.Getter world, double explosionX, double explosionY, double explosionZ,
+	                                 float strength, Random random) {
+		List<Vec> blocks = new ArrayList<>();
+		for (int x = 0; x < 16; ++x) {
+			for (int y = 0; y < 16; ++y) {
+				for (int z = 0; z < 16; ++z) {
+					if (x == 0 || x == 15 || y == 0 || y == 15 || z == 0 || z == 15) {
+						double xLength = (float) x / 15.0F * 2.0F - 1.0F;
+						double yLength = (float) y / 15.0F * 2.0F - 1.0F;
+						double zLength = (float) z / 15.0F * 2.0F - 1.0F;
+						double length = Math.sqrt(xLength * xLength + yLength * yLength + zLength * zLength);
+						xLength /= length;
+						yLength /= length;
+						zLength /= length;
+						double centerX = explosionX;
+						double centerY = explosionY;
+						double centerZ = explosionZ;
+						
+						float strengthLeft = strength * (0.7F + random.nextFloat() * 0.6F);
+						for (; strengthLeft > 0.0F; strengthLeft -= 0.225F) {
+							Vec position = new Vec(centerX, centerY, centerZ);
+							Block block = world.getBlock(position);
+							
+							if (!block.isAir()) {
+								double explosionResistance = block.registry().explosionResistance();
+								strengthLeft -= (float) ((explosionResistance + 0.3F) * 0.3F);
+								
+								if (strengthLeft > 0.0F) {
+									Vec blockPosition = position.apply(Vec.Operator.FLOOR);
+									if (!blocks.contains(blockPosition)) {
+										blocks.add(blockPosition);
+									}
+								}
+							}
+							
+							centerX += xLength * 0.30000001192092896D;
+							centerY += yLength * 0.30000001192092896D;
+							centerZ += zLength * 0.30000001192092896D;
+						}
+					}
+				}
+			}
+		}
+		return blocks;
+	}
+}